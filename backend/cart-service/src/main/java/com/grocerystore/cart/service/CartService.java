@@ -4,13 +4,14 @@ import com.grocerystore.cart.dto.CartDto;
 import com.grocerystore.cart.dto.CartItemDto;
 import com.grocerystore.cart.model.CartItem;
 import com.grocerystore.cart.repository.CartItemRepository;
+import com.grocerystore.cart.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,18 +21,18 @@ public class CartService {
     
     public CartDto getCart(Long userId) {
         List<CartItem> items = cartItemRepository.findByUserId(userId);
-        List<CartItemDto> itemDtos = items.stream()
-                .map(this::toCartItemDto)
-                .collect(Collectors.toList());
-        
-        BigDecimal total = itemDtos.stream()
-                .map(CartItemDto::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<CartItemDto> itemDtos = new ArrayList<>(items.size());
+        long totalCents = 0;
+        for (CartItem item : items) {
+            long subtotalCents = subtotalCents(item);
+            totalCents = Math.addExact(totalCents, subtotalCents);
+            itemDtos.add(toCartItemDto(item, subtotalCents));
+        }
         
         return CartDto.builder()
                 .userId(userId)
                 .items(itemDtos)
-                .total(total)
+                .total(Money.fromCents(totalCents))
                 .itemCount(items.size())
                 .build();
     }
@@ -125,14 +126,16 @@ public class CartService {
     }
     
     private CartItemDto toCartItemDto(CartItem item) {
-        // Calculate subtotal: use weight if available (for weight-based items), otherwise use quantity
-        BigDecimal subtotal;
-        if (item.getWeight() != null && item.getWeight().compareTo(BigDecimal.ZERO) > 0) {
-            subtotal = item.getPrice().multiply(item.getWeight());
-        } else {
-            subtotal = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-        }
-        
+        return toCartItemDto(item, subtotalCents(item));
+    }
+    
+    // Subtotal in cents: by weight if available (for weight-based items), otherwise by quantity
+    private long subtotalCents(CartItem item) {
+        long weightHundredths = item.getWeight() != null ? Money.toHundredths(item.getWeight()) : 0;
+        return Money.lineSubtotal(Money.toCents(item.getPrice()), item.getQuantity(), weightHundredths);
+    }
+    
+    private CartItemDto toCartItemDto(CartItem item, long subtotalCents) {
         return CartItemDto.builder()
                 .id(item.getId())
                 .productId(item.getProductId())
@@ -140,7 +143,7 @@ public class CartService {
                 .price(item.getPrice())
                 .quantity(item.getQuantity())
                 .weight(item.getWeight())
-                .subtotal(subtotal)
+                .subtotal(Money.fromCents(subtotalCents))
                 .build();
     }
 }
@@ -0,0 +1,87 @@
+package com.grocerystore.cart.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money arithmetic in {@code long} cents.
+ *
+ * Amounts are converted from BigDecimal once at the edge (entity or DTO) and
+ * everything after that is primitive math: no allocation, and overflow throws
+ * instead of wrapping. Every rounding step is explicit and rounds half up,
+ * which is what the BigDecimal code it replaces did with {@code setScale(2, HALF_UP)}.
+ *
+ * Weights are handled in hundredths, the precision they are stored at.
+ */
+public final class Money {
+    
+    public static final int SCALE = 2;
+    
+    private static final long HUNDREDTHS_PER_UNIT = 100;
+    private static final long RATE_DENOMINATOR = 1_000_000;
+    
+    private Money() {
+    }
+    
+    /**
+     * Cents in {@code amount}, rounded half up to the cent.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * A weight or other quantity in hundredths, rounded half up.
+     */
+    public static long toHundredths(BigDecimal quantity) {
+        return quantity.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+    
+    /**
+     * A rate such as 0.061 as an integer number of millionths (61000), for {@link #applyRate}.
+     */
+    public static long toRateMillionths(BigDecimal rate) {
+        return rate.movePointRight(6).longValueExact();
+    }
+    
+    public static long times(long unitCents, long quantity) {
+        return Math.multiplyExact(unitCents, quantity);
+    }
+    
+    /**
+     * Price per unit of weight times a weight in hundredths, rounded half up to the cent.
+     */
+    public static long timesWeight(long unitCents, long weightHundredths) {
+        return divideHalfUp(Math.multiplyExact(unitCents, weightHundredths), HUNDREDTHS_PER_UNIT);
+    }
+    
+    /**
+     * {@code cents} times a rate given in millionths, rounded half up to the cent.
+     */
+    public static long applyRate(long cents, long rateMillionths) {
+        return divideHalfUp(Math.multiplyExact(cents, rateMillionths), RATE_DENOMINATOR);
+    }
+    
+    /**
+     * Subtotal of a cart or order line: by weight when the line has one, otherwise by quantity.
+     */
+    public static long lineSubtotal(long unitCents, long quantity, long weightHundredths) {
+        return weightHundredths > 0 ? timesWeight(unitCents, weightHundredths) : times(unitCents, quantity);
+    }
+    
+    /**
+     * Division rounding half away from zero, matching {@link RoundingMode#HALF_UP}.
+     */
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,97 @@
+package com.grocerystore.catalog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read/write split for catalog-service.
+ * 
+ * Writes and regular transactions go to the primary configured under
+ * spring.datasource. Service methods marked @Transactional(readOnly = true)
+ * are routed to one of the replicas listed in catalog.datasource.replicas.
+ * With no replicas configured everything goes to the primary, as before.
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+    
+    @Value("${catalog.datasource.replicas:}")
+    private String replicaUrls;
+    
+    @Value("${catalog.datasource.replica-max-lag-seconds:5}")
+    private double replicaMaxLagSeconds;
+    
+    @Value("${catalog.datasource.replica-pool-size:10}")
+    private int replicaPoolSize;
+    
+    private ReadReplicaRoutingDataSource routingDataSource;
+    // Not beans themselves, so they are closed here rather than by the context
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("catalog-primary");
+        return dataSource;
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<String> urls = Arrays.stream(replicaUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("catalog-replica-" + i);
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // Don't block startup on a replica that isn't up yet; the lag check brings it in later
+            replica.setInitializationFailTimeout(-1);
+            replicas.put("replica-" + i, replica);
+            replicaPools.add(replica);
+        }
+        
+        routingDataSource = new ReadReplicaRoutingDataSource(primaryDataSource, replicas, replicaMaxLagSeconds);
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.checkReplicaLag();
+        
+        // Defer picking a target until the first statement, after the transaction's
+        // read-only flag has been bound to the thread
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+    
+    @Scheduled(fixedDelayString = "${catalog.datasource.replica-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        if (routingDataSource != null && routingDataSource.hasReplicas()) {
+            routingDataSource.checkReplicaLag();
+        }
+    }
+    
+    @PreDestroy
+    public void closeReplicas() {
+        replicaPools.forEach(HikariDataSource::close);
+        replicaPools.clear();
+    }
+}
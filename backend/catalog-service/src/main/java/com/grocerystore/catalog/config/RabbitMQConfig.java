@@ -0,0 +1,98 @@
+package com.grocerystore.catalog.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitMQConfig {
+    
+    // Owned by order-service; declared here too (same arguments) so either service can start first
+    public static final String ORDER_EXCHANGE = "order-exchange";
+    public static final String ORDER_CONFIRMED_ROUTING_KEY = "order.confirmed";
+    public static final String ORDER_CONFIRMED_QUEUE = "catalog-order-confirmed-queue";
+    public static final String DEAD_LETTER_EXCHANGE = "catalog-dlx";
+    public static final String ORDER_CONFIRMED_DLQ = "catalog-order-confirmed-dlq";
+    
+    // Product price/availability changes for other services' local caches
+    public static final String CATALOG_EXCHANGE = "catalog-exchange";
+    public static final String PRODUCT_CHANGED_ROUTING_KEY = "product.changed";
+    
+    @Bean
+    public TopicExchange orderExchange() {
+        return new TopicExchange(ORDER_EXCHANGE, true, false);
+    }
+    
+    @Bean
+    public TopicExchange catalogExchange() {
+        return new TopicExchange(CATALOG_EXCHANGE, true, false);
+    }
+    
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE, true, false);
+    }
+    
+    @Bean
+    public Queue orderConfirmedQueue() {
+        return QueueBuilder.durable(ORDER_CONFIRMED_QUEUE)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(ORDER_CONFIRMED_DLQ)
+                .build();
+    }
+    
+    @Bean
+    public Queue orderConfirmedDeadLetterQueue() {
+        return QueueBuilder.durable(ORDER_CONFIRMED_DLQ).build();
+    }
+    
+    @Bean
+    public Binding orderConfirmedBinding() {
+        return BindingBuilder
+                .bind(orderConfirmedQueue())
+                .to(orderExchange())
+                .with(ORDER_CONFIRMED_ROUTING_KEY);
+    }
+    
+    @Bean
+    public Binding orderConfirmedDeadLetterBinding() {
+        return BindingBuilder
+                .bind(orderConfirmedDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(ORDER_CONFIRMED_DLQ);
+    }
+    
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+    
+    /**
+     * Batch consumer for order events: up to batch-size messages, or whatever
+     * arrived within receive-timeout-ms, are handed over and acknowledged
+     * together. Rejected messages go to the dead-letter queue, not back to the queue.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory orderEventBatchListenerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${catalog.stock.events.batch-size:100}") int batchSize,
+            @Value("${catalog.stock.events.receive-timeout-ms:500}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(batchSize * 2);
+        // One consumer keeps batches from contending on the same hot product rows
+        factory.setConcurrentConsumers(1);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
@@ -0,0 +1,113 @@
+package com.grocerystore.catalog.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a healthy replica and everything
+ * else to the primary. Replicas that lag too far behind, or refuse connections,
+ * are skipped until the next lag check finds them healthy again.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    
+    static final String PRIMARY = "primary";
+    
+    // 0 when caught up (or not a standby at all), otherwise seconds since the last replayed transaction
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+    
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final Set<String> healthyReplicas = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final double maxLagSeconds;
+    
+    public ReadReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, double maxLagSeconds) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaKeys = List.copyOf(this.replicas.keySet());
+        this.maxLagSeconds = maxLagSeconds;
+        
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        // Replicas start out unhealthy until the first lag check passes
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || healthyReplicas.isEmpty()) {
+            return PRIMARY;
+        }
+        for (int i = 0; i < replicaKeys.size(); i++) {
+            String key = replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+            if (healthyReplicas.contains(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            log.warn("Replica {} unavailable, falling back to primary: {}", key, e.getMessage());
+            healthyReplicas.remove(key);
+            return primary.getConnection();
+        }
+    }
+    
+    /**
+     * Re-evaluate every replica against the lag limit.
+     */
+    public void checkReplicaLag() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String key = replica.getKey();
+            try (Connection connection = replica.getValue().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                double lagSeconds = rs.next() ? rs.getDouble(1) : Double.MAX_VALUE;
+                if (lagSeconds <= maxLagSeconds) {
+                    if (healthyReplicas.add(key)) {
+                        log.info("Replica {} is healthy (lag {}s), routing read-only traffic to it", key, lagSeconds);
+                    }
+                } else if (healthyReplicas.remove(key)) {
+                    log.warn("Replica {} lags {}s (limit {}s), routing its reads to primary", key, lagSeconds, maxLagSeconds);
+                }
+            } catch (SQLException e) {
+                if (healthyReplicas.remove(key)) {
+                    log.warn("Replica {} failed lag check, routing its reads to primary: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+}
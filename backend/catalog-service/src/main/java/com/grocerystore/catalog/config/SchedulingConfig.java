@@ -0,0 +1,14 @@
+package com.grocerystore.catalog.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs: stock stripe reconcile, replica lag checks, catalog snapshot sync
+ * and price change events.
+ * Kept out of the application class so sliced tests don't start them.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
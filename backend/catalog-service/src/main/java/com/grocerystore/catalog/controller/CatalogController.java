@@ -4,12 +4,18 @@ import com.grocerystore.catalog.dto.CategoryDto;
 import com.grocerystore.catalog.dto.CreateRecipeRequest;
 import com.grocerystore.catalog.dto.PriceHistoryDto;
 import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.dto.ProductListDto;
 import com.grocerystore.catalog.dto.RecipeDto;
 import com.grocerystore.catalog.dto.WishlistDto;
 import com.grocerystore.catalog.service.CatalogService;
+import com.grocerystore.catalog.service.CatalogSnapshot;
+import com.grocerystore.catalog.service.CatalogSnapshotService;
+import com.grocerystore.catalog.service.PosCatalogService;
+import com.grocerystore.catalog.util.PosCatalogEncoder;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -24,10 +30,28 @@ import java.util.List;
 public class CatalogController {
     
     private final CatalogService catalogService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final PosCatalogService posCatalogService;
     
     @GetMapping("/products")
     public ResponseEntity<List<ProductDto>> getAllProducts() {
-        return ResponseEntity.ok(catalogService.getAllProducts());
+        return ResponseEntity.ok(catalogSnapshotService.readThrough(
+                catalogService::getAllProducts,
+                snapshot -> snapshot.getAvailableProducts()));
+    }
+    
+    /**
+     * Every active product, in stock or not, with the catalog seq it reflects.
+     * Used by order-service to load its price and emission-factor caches.
+     */
+    @GetMapping("/products/active")
+    public ResponseEntity<ProductListDto> getActiveProducts() {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return ResponseEntity.ok(new ProductListDto(snapshot.getAppliedSeq(), snapshot.getActiveProducts()));
+        }
+        // No snapshot to tie a seq to; seq 0 tells consumers not to order it against events
+        return ResponseEntity.ok(new ProductListDto(0L, catalogService.getActiveProducts()));
     }
     
     @GetMapping("/products/admin/all")
@@ -40,7 +64,11 @@ public class CatalogController {
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
         try {
             // For customers, check availability
-            return ResponseEntity.ok(catalogService.getProductByIdForCustomer(id));
+            return ResponseEntity.ok(catalogSnapshotService.readThrough(
+                    () -> catalogService.getProductByIdForCustomer(id),
+                    snapshot -> snapshot.findProduct(id)
+                            .filter(p -> p.getActive() && p.getStockQuantity() > 0)
+                            .orElseThrow(() -> new RuntimeException("Product not available"))));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -59,7 +87,9 @@ public class CatalogController {
     
     @GetMapping("/products/category/{categoryId}")
     public ResponseEntity<List<ProductDto>> getProductsByCategory(@PathVariable Long categoryId) {
-        return ResponseEntity.ok(catalogService.getProductsByCategory(categoryId));
+        return ResponseEntity.ok(catalogSnapshotService.readThrough(
+                () -> catalogService.getProductsByCategory(categoryId),
+                snapshot -> snapshot.getAvailableProductsByCategory(categoryId)));
     }
     
     @PostMapping("/products")
@@ -136,13 +166,18 @@ public class CatalogController {
     
     @GetMapping("/categories")
     public ResponseEntity<List<CategoryDto>> getAllCategories() {
-        return ResponseEntity.ok(catalogService.getAllCategories());
+        return ResponseEntity.ok(catalogSnapshotService.readThrough(
+                catalogService::getAllCategories,
+                snapshot -> List.copyOf(snapshot.getCategories())));
     }
     
     @GetMapping("/categories/{id}")
     public ResponseEntity<CategoryDto> getCategoryById(@PathVariable Long id) {
         try {
-            return ResponseEntity.ok(catalogService.getCategoryById(id));
+            return ResponseEntity.ok(catalogSnapshotService.readThrough(
+                    () -> catalogService.getCategoryById(id),
+                    snapshot -> snapshot.findCategory(id)
+                            .orElseThrow(() -> new RuntimeException("Category not found"))));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -328,5 +363,63 @@ public class CatalogController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         }
     }
+    
+    // Opt a hot product into striped stock counters for flash sales
+    @PutMapping("/products/{productId}/stock/stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> enableStockStriping(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "8") Integer count) {
+        try {
+            catalogService.enableStockStriping(productId, count);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            java.util.Map<String, String> error = new java.util.HashMap<>();
+            error.put("message", e.getMessage() != null ? e.getMessage() : "Failed to enable stock striping");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
+    @DeleteMapping("/products/{productId}/stock/stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> disableStockStriping(@PathVariable Long productId) {
+        try {
+            catalogService.disableStockStriping(productId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            java.util.Map<String, String> error = new java.util.HashMap<>();
+            error.put("message", e.getMessage() != null ? e.getMessage() : "Failed to disable stock striping");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
+    // ========== POS Catalog Replica Endpoints ==========
+    
+    // Full compact catalog for a lane terminal's local replica
+    @GetMapping("/pos/snapshot")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<byte[]> getPosCatalogSnapshot() {
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(PosCatalogEncoder.CONTENT_TYPE))
+                    .body(posCatalogService.getSnapshot());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    // Changes since the seq the terminal last applied; 410 means reload the full snapshot
+    @GetMapping("/pos/delta")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<byte[]> getPosCatalogDelta(@RequestParam Long since) {
+        try {
+            return posCatalogService.getDelta(since)
+                    .map(delta -> ResponseEntity.ok()
+                            .contentType(MediaType.parseMediaType(PosCatalogEncoder.CONTENT_TYPE))
+                            .body(delta))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.GONE).build());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
 }
-
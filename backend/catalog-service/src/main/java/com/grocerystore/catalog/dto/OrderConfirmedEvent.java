@@ -0,0 +1,27 @@
+package com.grocerystore.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published by order-service on order.confirmed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderConfirmedEvent {
+    private Long orderId;
+    private String orderNumber;
+    private List<Line> items;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,19 @@
+package com.grocerystore.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Every active product, in stock or not, as of catalog change {@code seq}.
+ * Lets order-service load its caches and order them against product.changed events.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListDto {
+    private Long seq;
+    private List<ProductDto> products;
+}
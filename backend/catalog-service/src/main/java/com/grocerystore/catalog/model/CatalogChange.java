@@ -0,0 +1,47 @@
+package com.grocerystore.catalog.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per product/category write, appended by database triggers.
+ * The id doubles as the catalog change sequence.
+ */
+@Entity
+@Table(name = "catalog_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false)
+    private EntityType entityType;
+    
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private ChangeType changeType;
+    
+    @Column(name = "changed_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+    
+    public enum EntityType {
+        PRODUCT, CATEGORY
+    }
+    
+    public enum ChangeType {
+        UPSERT, DELETE
+    }
+}
@@ -0,0 +1,21 @@
+package com.grocerystore.catalog.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "event_publish_cursors")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventPublishCursor {
+    @Id
+    private String name;
+    
+    @Column(nullable = false)
+    private Long seq;
+}
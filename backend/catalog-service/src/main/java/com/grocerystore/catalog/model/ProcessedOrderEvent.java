@@ -0,0 +1,24 @@
+package com.grocerystore.catalog.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "processed_order_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedOrderEvent {
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+    
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
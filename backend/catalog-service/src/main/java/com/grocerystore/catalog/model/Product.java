@@ -44,6 +44,11 @@ public class Product {
     @Builder.Default
     private Boolean active = true;
     
+    // Set only through ProductRepository.setStockStriped, so a stale entity save can't flip it
+    @Column(nullable = false, updatable = false)
+    @Builder.Default
+    private Boolean stockStriped = false;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
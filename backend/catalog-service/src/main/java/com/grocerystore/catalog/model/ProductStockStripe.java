@@ -0,0 +1,30 @@
+package com.grocerystore.catalog.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "product_stock_stripes", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"product_id", "stripe_index"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStockStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @Column(name = "stripe_index", nullable = false)
+    private Integer stripeIndex;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+}
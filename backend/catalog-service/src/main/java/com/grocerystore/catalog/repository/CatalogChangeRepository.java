@@ -0,0 +1,43 @@
+package com.grocerystore.catalog.repository;
+
+import com.grocerystore.catalog.model.CatalogChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+    List<CatalogChange> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long afterSeq, Long upToSeq);
+    
+    // Last seq handed out, committed or not; still correct once every change has been pruned
+    @Query(value = "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM catalog_changes_id_seq",
+           nativeQuery = true)
+    long findLatestSeq();
+    
+    // Oldest change still in the log, or the next seq to be handed out if the log is empty:
+    // a reader at seq s can catch up from the log only if this is at most s + 1
+    @Query(value = "SELECT COALESCE((SELECT MIN(id) FROM catalog_changes), " +
+                   "(SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM catalog_changes_id_seq))",
+           nativeQuery = true)
+    long findOldestSeq();
+    
+    // First change from a transaction that started within the last given seconds, if any
+    @Query(value = "SELECT MIN(id) FROM catalog_changes WHERE changed_at >= LOCALTIMESTAMP - :seconds * INTERVAL '1 second'",
+           nativeQuery = true)
+    Long findFirstSeqWithin(@Param("seconds") long seconds);
+    
+    @Query("SELECT DISTINCT c.entityId FROM CatalogChange c " +
+           "WHERE c.entityType = :entityType AND c.id > :afterSeq AND c.id <= :upToSeq")
+    List<Long> findChangedEntityIds(@Param("entityType") CatalogChange.EntityType entityType,
+                                    @Param("afterSeq") Long afterSeq,
+                                    @Param("upToSeq") Long upToSeq);
+    
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.changedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,20 @@
+package com.grocerystore.catalog.repository;
+
+import com.grocerystore.catalog.model.EventPublishCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EventPublishCursorRepository extends JpaRepository<EventPublishCursor, String> {
+    
+    /**
+     * Lock a stream's cursor for this transaction, or nothing if another instance holds it.
+     */
+    @Query(value = "SELECT * FROM event_publish_cursors WHERE name = :name FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<EventPublishCursor> tryLock(@Param("name") String name);
+}
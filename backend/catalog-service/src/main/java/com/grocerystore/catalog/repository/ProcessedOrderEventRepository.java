@@ -0,0 +1,21 @@
+package com.grocerystore.catalog.repository;
+
+import com.grocerystore.catalog.model.ProcessedOrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProcessedOrderEventRepository extends JpaRepository<ProcessedOrderEvent, Long> {
+    
+    /**
+     * @return 1 if this order is new, 0 if its stock was already applied
+     */
+    @Modifying
+    @Query(value = "INSERT INTO processed_order_events (order_id, processed_at) " +
+                   "VALUES (:orderId, CURRENT_TIMESTAMP) ON CONFLICT (order_id) DO NOTHING",
+           nativeQuery = true)
+    int markProcessed(@Param("orderId") Long orderId);
+}
@@ -1,11 +1,16 @@
 package com.grocerystore.catalog.repository;
 
+import com.grocerystore.catalog.dto.ProductDto;
 import com.grocerystore.catalog.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,6 +24,42 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true AND p.stockQuantity > 0")
     List<Product> findAvailableProductsByCategory(@Param("categoryId") Long categoryId);
     
+    // DTO read paths: category is joined in the same statement and nothing is
+    // hydrated into the persistence context, so listings cost one query.
+    String PRODUCT_DTO_SELECT = "SELECT new com.grocerystore.catalog.dto.ProductDto(" +
+            "p.id, p.name, p.description, p.price, p.stockQuantity, p.imageUrl, p.productCode, " +
+            "c.id, c.name, p.active) FROM Product p JOIN p.category c ";
+    
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true AND p.stockQuantity > 0 ORDER BY p.id")
+    List<ProductDto> findAvailableProductDtos();
+    
+    @Query(PRODUCT_DTO_SELECT + "WHERE c.id = :categoryId AND p.active = true AND p.stockQuantity > 0 ORDER BY p.id")
+    List<ProductDto> findAvailableProductDtosByCategory(@Param("categoryId") Long categoryId);
+    
+    @Query(PRODUCT_DTO_SELECT + "ORDER BY p.id")
+    List<ProductDto> findAllProductDtos();
+    
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.id = :id")
+    java.util.Optional<ProductDto> findProductDtoById(@Param("id") Long id);
+    
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.id IN :ids")
+    List<ProductDto> findProductDtosByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    java.util.Optional<Product> findByIdForUpdate(@Param("id") Long id);
+    
+    // Atomic decrement; stock may go negative when oversold, as with manual updates.
+    // Matches nothing for striped products, whose stock lives in product_stock_stripes.
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.stockStriped = false")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.stockStriped = :striped WHERE p.id = :id")
+    int setStockStriped(@Param("id") Long id, @Param("striped") boolean striped);
+    
     java.util.Optional<Product> findByProductCode(String productCode);
     
     long countByCategoryId(Long categoryId);
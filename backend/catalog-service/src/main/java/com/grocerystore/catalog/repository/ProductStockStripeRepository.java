@@ -0,0 +1,52 @@
+package com.grocerystore.catalog.repository;
+
+import com.grocerystore.catalog.model.ProductStockStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductStockStripeRepository extends JpaRepository<ProductStockStripe, Long> {
+    void deleteByProductId(Long productId);
+    
+    // Lock stripes in index order so concurrent borrowers never deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockStripe s WHERE s.productId = :productId ORDER BY s.stripeIndex ASC")
+    List<ProductStockStripe> findByProductIdForUpdate(@Param("productId") Long productId);
+    
+    // Decrement one random stripe that alone covers the quantity. Stripes held by
+    // concurrent decrements are skipped rather than waited on; 0 means none was free.
+    @Modifying
+    @Query(value = "UPDATE product_stock_stripes SET quantity = quantity - :quantity WHERE id = (" +
+                   "SELECT id FROM product_stock_stripes WHERE product_id = :productId AND quantity >= :quantity " +
+                   "ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int tryDecrementAny(@Param("productId") Long productId, @Param("quantity") int quantity);
+    
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockStripe s WHERE s.productId = :productId")
+    long sumQuantityByProductId(@Param("productId") Long productId);
+    
+    // Fold stripe totals back into products.stock_quantity, touching only rows that drifted
+    // (every products write also appends a catalog_changes row)
+    @Modifying
+    @Query(value = "UPDATE products p SET stock_quantity = s.total, updated_at = NOW() " +
+                   "FROM (SELECT product_id, SUM(quantity) AS total FROM product_stock_stripes GROUP BY product_id) s " +
+                   "WHERE p.id = s.product_id AND p.stock_quantity <> s.total",
+           nativeQuery = true)
+    int reconcileAll();
+    
+    @Modifying
+    @Query(value = "UPDATE products p SET stock_quantity = s.total, updated_at = NOW() " +
+                   "FROM (SELECT product_id, SUM(quantity) AS total FROM product_stock_stripes " +
+                   "      WHERE product_id IN (:productIds) GROUP BY product_id) s " +
+                   "WHERE p.id = s.product_id AND p.stock_quantity <> s.total",
+           nativeQuery = true)
+    int reconcile(@Param("productIds") Collection<Long> productIds);
+}
@@ -1,6 +1,7 @@
 package com.grocerystore.catalog.repository;
 
 import com.grocerystore.catalog.model.Recipe;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,6 +12,9 @@ import java.util.Optional;
 public interface RecipeRepository extends JpaRepository<Recipe, Long> {
     List<Recipe> findByCuisineType(String cuisineType);
     Optional<Recipe> findByNameContainingIgnoreCase(String name);
+    
+    // Ingredients are EAGER; fetch them in the same statement instead of one select per recipe
+    @EntityGraph(attributePaths = "ingredients")
     List<Recipe> findAllByOrderByCreatedAtDesc();
 }
 
@@ -23,8 +23,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,42 +41,48 @@ public class CatalogService {
     private final WishlistRepository wishlistRepository;
     private final PriceHistoryRepository priceHistoryRepository;
     private final TheMealDbService theMealDbService;
+    private final StockStripeService stockStripeService;
     
+    @Transactional(readOnly = true)
     public List<ProductDto> getAllProducts() {
         // Customers only see available products (active AND in stock)
-        return productRepository.findAvailableProducts().stream()
-                .map(this::toProductDto)
+        return productRepository.findAvailableProductDtos();
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ProductDto> getActiveProducts() {
+        return productRepository.findAllProductDtos().stream()
+                .filter(p -> Boolean.TRUE.equals(p.getActive()))
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<ProductDto> getAllProductsForAdmin() {
         // Admin can see all products including inactive ones
-        return productRepository.findAll().stream()
-                .map(this::toProductDto)
-                .collect(Collectors.toList());
+        return productRepository.findAllProductDtos();
     }
     
+    @Transactional(readOnly = true)
     public ProductDto getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        return productRepository.findProductDtoById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        return toProductDto(product);
     }
     
+    @Transactional(readOnly = true)
     public List<ProductDto> getProductsByCategory(Long categoryId) {
         // Customers only see available products (active AND in stock)
-        return productRepository.findAvailableProductsByCategory(categoryId).stream()
-                .map(this::toProductDto)
-                .collect(Collectors.toList());
+        return productRepository.findAvailableProductDtosByCategory(categoryId);
     }
     
+    @Transactional(readOnly = true)
     public ProductDto getProductByIdForCustomer(Long id) {
-        Product product = productRepository.findById(id)
+        ProductDto product = productRepository.findProductDtoById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         // Check if product is available
         if (!product.getActive() || product.getStockQuantity() <= 0) {
             throw new RuntimeException("Product not available");
         }
-        return toProductDto(product);
+        return product;
     }
     
     @Transactional
@@ -156,7 +166,11 @@ public class CatalogService {
         if (productDto.getName() != null) product.setName(productDto.getName());
         if (productDto.getDescription() != null) product.setDescription(productDto.getDescription());
         if (productDto.getPrice() != null) product.setPrice(productDto.getPrice());
-        if (productDto.getStockQuantity() != null) product.setStockQuantity(productDto.getStockQuantity());
+        if (productDto.getStockQuantity() != null) {
+            product.setStockQuantity(productDto.getStockQuantity());
+            // Striped products keep their stock in the stripes; spread the new value over them
+            stockStripeService.resetStock(id, productDto.getStockQuantity());
+        }
         if (productDto.getImageUrl() != null) product.setImageUrl(productDto.getImageUrl());
         
         // Handle productCode update with uniqueness check
@@ -207,18 +221,29 @@ public class CatalogService {
     
     @Transactional
     public void updateStock(Long productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepository.save(product);
+        // Hot products skip the products row and decrement a stock stripe instead
+        if (productRepository.decrementStock(productId, quantity) == 0
+                && !stockStripeService.decrement(productId, quantity)) {
+            throw new RuntimeException("Product not found");
+        }
+    }
+    
+    public void enableStockStriping(Long productId, int stripes) {
+        stockStripeService.enableStriping(productId, stripes);
+    }
+    
+    public void disableStockStriping(Long productId) {
+        stockStripeService.disableStriping(productId);
     }
     
+    @Transactional(readOnly = true)
     public List<CategoryDto> getAllCategories() {
         return categoryRepository.findAll().stream()
                 .map(this::toCategoryDto)
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public CategoryDto getCategoryById(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
@@ -307,7 +332,7 @@ public class CatalogService {
                 .build();
     }
     
-    private CategoryDto toCategoryDto(Category category) {
+    CategoryDto toCategoryDto(Category category) {
         return CategoryDto.builder()
                 .id(category.getId())
                 .name(category.getName())
@@ -317,9 +342,12 @@ public class CatalogService {
     
     // ========== Recipe Methods ==========
     
+    @Transactional(readOnly = true)
     public List<RecipeDto> getAllRecipes() {
-        return recipeRepository.findAllByOrderByCreatedAtDesc().stream()
-                .map(this::toRecipeDto)
+        List<Recipe> recipes = recipeRepository.findAllByOrderByCreatedAtDesc();
+        Map<Long, ProductDto> products = findIngredientProducts(recipes);
+        return recipes.stream()
+                .map(recipe -> toRecipeDto(recipe, products))
                 .collect(Collectors.toList());
     }
     
@@ -360,10 +388,11 @@ public class CatalogService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public RecipeDto getRecipeById(Long id) {
         Recipe recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Recipe not found"));
-        return toRecipeDto(recipe);
+        return toRecipeDto(recipe, findIngredientProducts(List.of(recipe)));
     }
     
     @Transactional
@@ -393,12 +422,26 @@ public class CatalogService {
         
         recipe.setIngredients(ingredients);
         Recipe savedRecipe = recipeRepository.save(recipe);
-        return toRecipeDto(savedRecipe);
+        return toRecipeDto(savedRecipe, findIngredientProducts(List.of(savedRecipe)));
+    }
+    
+    // Look up stock and price for every ingredient of the given recipes in one query
+    private Map<Long, ProductDto> findIngredientProducts(Collection<Recipe> recipes) {
+        Set<Long> productIds = recipes.stream()
+                .flatMap(recipe -> recipe.getIngredients().stream())
+                .map(RecipeIngredient::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productRepository.findProductDtosByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductDto::getId, p -> p));
     }
     
-    private RecipeDto toRecipeDto(Recipe recipe) {
+    private RecipeDto toRecipeDto(Recipe recipe, Map<Long, ProductDto> products) {
         List<RecipeIngredientDto> ingredientDtos = recipe.getIngredients().stream()
-                .map(this::toRecipeIngredientDto)
+                .map(ing -> toRecipeIngredientDto(ing, products.get(ing.getProductId())))
                 .collect(Collectors.toList());
         
         return RecipeDto.builder()
@@ -417,19 +460,10 @@ public class CatalogService {
                 .build();
     }
     
-    private RecipeIngredientDto toRecipeIngredientDto(RecipeIngredient ing) {
-        // Check if product is in stock and get current price
-        Boolean inStock = false;
-        BigDecimal currentPrice = null;
-        try {
-            Product product = productRepository.findById(ing.getProductId()).orElse(null);
-            if (product != null) {
-                inStock = product.getActive() && product.getStockQuantity() > 0;
-                currentPrice = product.getPrice();
-            }
-        } catch (Exception e) {
-            // Product might not exist, that's okay
-        }
+    private RecipeIngredientDto toRecipeIngredientDto(RecipeIngredient ing, ProductDto product) {
+        // Product might not exist, that's okay
+        Boolean inStock = product != null && product.getActive() && product.getStockQuantity() > 0;
+        BigDecimal currentPrice = product != null ? product.getPrice() : null;
         
         return RecipeIngredientDto.builder()
                 .id(ing.getId())
@@ -445,6 +479,7 @@ public class CatalogService {
     
     // ========== Wishlist Methods ==========
     
+    @Transactional(readOnly = true)
     public List<WishlistDto> getUserWishlist(Long userId) {
         List<Wishlist> wishlistItems = wishlistRepository.findByUserIdOrderByCreatedAtDesc(userId);
         return wishlistItems.stream()
@@ -517,6 +552,7 @@ public class CatalogService {
         return toWishlistDto(wishlist);
     }
     
+    @Transactional(readOnly = true)
     public List<PriceHistoryDto> getPriceHistory(Long productId) {
         return priceHistoryRepository.findByProductIdOrderByRecordedAtDesc(productId).stream()
                 .map(this::toPriceHistoryDto)
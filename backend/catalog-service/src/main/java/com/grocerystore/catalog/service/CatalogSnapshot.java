@@ -0,0 +1,137 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.dto.CategoryDto;
+import com.grocerystore.catalog.dto.ProductDto;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable point-in-time copy of products and categories, tagged with the
+ * catalog change sequence it reflects. Changes produce a new snapshot.
+ * 
+ * Every change up to lastSeq is applied; some above it, up to appliedSeq, may be
+ * too, while an earlier seq is still uncommitted (see {@link com.grocerystore.catalog.util.ChangeSeqWatermark}).
+ * Readers that follow the snapshot resume from lastSeq.
+ */
+public class CatalogSnapshot {
+    
+    private final long lastSeq;
+    private final long appliedSeq;
+    private final long builtAt;
+    private final Map<Long, CategoryDto> categories;
+    private final Map<Long, ProductDto> products;
+    
+    public CatalogSnapshot(long lastSeq, long builtAt, Collection<CategoryDto> categories, Collection<ProductDto> products) {
+        this(lastSeq, lastSeq, builtAt, categories, products);
+    }
+    
+    public CatalogSnapshot(long lastSeq, long appliedSeq, long builtAt,
+                           Collection<CategoryDto> categories, Collection<ProductDto> products) {
+        this.lastSeq = lastSeq;
+        this.appliedSeq = Math.max(lastSeq, appliedSeq);
+        this.builtAt = builtAt;
+        Map<Long, CategoryDto> categoryMap = new TreeMap<>();
+        categories.forEach(c -> categoryMap.put(c.getId(), c));
+        Map<Long, ProductDto> productMap = new TreeMap<>();
+        products.forEach(p -> productMap.put(p.getId(), p));
+        this.categories = Collections.unmodifiableMap(categoryMap);
+        this.products = Collections.unmodifiableMap(productMap);
+    }
+    
+    public long getLastSeq() {
+        return lastSeq;
+    }
+    
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+    
+    public long getBuiltAt() {
+        return builtAt;
+    }
+    
+    public Collection<CategoryDto> getCategories() {
+        return categories.values();
+    }
+    
+    public Collection<ProductDto> getProducts() {
+        return products.values();
+    }
+    
+    public Optional<ProductDto> findProduct(Long id) {
+        return Optional.ofNullable(products.get(id));
+    }
+    
+    public Optional<CategoryDto> findCategory(Long id) {
+        return Optional.ofNullable(categories.get(id));
+    }
+    
+    public List<ProductDto> getAvailableProducts() {
+        return products.values().stream()
+                .filter(CatalogSnapshot::isAvailable)
+                .collect(Collectors.toList());
+    }
+    
+    public List<ProductDto> getActiveProducts() {
+        return products.values().stream()
+                .filter(p -> Boolean.TRUE.equals(p.getActive()))
+                .collect(Collectors.toList());
+    }
+    
+    public List<ProductDto> getAvailableProductsByCategory(Long categoryId) {
+        return products.values().stream()
+                .filter(p -> categoryId.equals(p.getCategoryId()) && isAvailable(p))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Apply a batch of changes read from the change sequence.
+     */
+    public CatalogSnapshot withChanges(long newSeq, long newAppliedSeq,
+                                       Collection<CategoryDto> upsertedCategories, Collection<Long> deletedCategoryIds,
+                                       Collection<ProductDto> upsertedProducts, Collection<Long> deletedProductIds) {
+        Map<Long, CategoryDto> newCategories = new TreeMap<>(categories);
+        deletedCategoryIds.forEach(newCategories::remove);
+        upsertedCategories.forEach(c -> newCategories.put(c.getId(), c));
+        
+        Map<Long, ProductDto> newProducts = new TreeMap<>(products);
+        deletedProductIds.forEach(newProducts::remove);
+        upsertedProducts.forEach(p -> newProducts.put(p.getId(), p));
+        
+        // Keep the denormalized category name on untouched products in step with renames
+        for (CategoryDto category : upsertedCategories) {
+            newProducts.replaceAll((id, p) -> category.getId().equals(p.getCategoryId())
+                    && !category.getName().equals(p.getCategoryName())
+                    ? withCategoryName(p, category.getName()) : p);
+        }
+        
+        return new CatalogSnapshot(newSeq, Math.max(appliedSeq, newAppliedSeq), System.currentTimeMillis(),
+                newCategories.values(), newProducts.values());
+    }
+    
+    private static ProductDto withCategoryName(ProductDto product, String categoryName) {
+        return ProductDto.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity())
+                .imageUrl(product.getImageUrl())
+                .productCode(product.getProductCode())
+                .categoryId(product.getCategoryId())
+                .categoryName(categoryName)
+                .active(product.getActive())
+                .build();
+    }
+    
+    private static boolean isAvailable(ProductDto product) {
+        return Boolean.TRUE.equals(product.getActive())
+                && product.getStockQuantity() != null && product.getStockQuantity() > 0;
+    }
+}
@@ -0,0 +1,249 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.dto.CategoryDto;
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.model.CatalogChange;
+import com.grocerystore.catalog.repository.CatalogChangeRepository;
+import com.grocerystore.catalog.repository.CategoryRepository;
+import com.grocerystore.catalog.repository.ProductRepository;
+import com.grocerystore.catalog.util.CatalogSnapshotCodec;
+import com.grocerystore.catalog.util.ChangeSeqWatermark;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps an in-memory catalog snapshot in step with the database through the
+ * catalog change sequence, and persists it to local disk.
+ * 
+ * On startup the last snapshot file is memory-mapped and served immediately;
+ * read endpoints use it until the first sync has caught up with the database.
+ * Afterwards reads go to the database again, falling back to the snapshot
+ * whenever the database is unreachable.
+ * 
+ * Changes that commit out of seq order are caught by tracking the holes in the
+ * sequence rather than by re-reading a fixed window; a hole still empty after
+ * {@code catalog.changes.max-commit-lag-ms} is taken to be a rollback.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogSnapshotService {
+    
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final CatalogChangeRepository changeRepository;
+    private final CatalogService catalogService;
+    
+    @Value("${catalog.snapshot.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${catalog.snapshot.path:data/catalog-snapshot.bin}")
+    private String snapshotPath;
+    
+    @Value("${catalog.snapshot.change-retention-days:7}")
+    private int changeRetentionDays;
+    
+    @Value("${catalog.changes.max-commit-lag-ms:120000}")
+    private long maxCommitLagMs;
+    
+    private volatile CatalogSnapshot snapshot;
+    private volatile boolean caughtUp;
+    private volatile CatalogSnapshot persisted;
+    // Holes in the change sequence below the snapshot's applied seq; only sync() touches it
+    private ChangeSeqWatermark position;
+    
+    @PostConstruct
+    void loadFromDisk() {
+        if (!enabled) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            log.info("No catalog snapshot at {}, first requests will be served from the database", path);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            snapshot = CatalogSnapshotCodec.decode(buffer);
+            persisted = snapshot;
+            log.info("Loaded catalog snapshot from {}: {} products, {} categories, seq {}",
+                    path, snapshot.getProducts().size(), snapshot.getCategories().size(), snapshot.getLastSeq());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable catalog snapshot at {}: {}", path, e.getMessage());
+        }
+    }
+    
+    /**
+     * Serve a read from the database, or from the snapshot while catching up after
+     * startup or when the database call fails.
+     */
+    public <T> T readThrough(Supplier<T> database, Function<CatalogSnapshot, T> fromSnapshot) {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return database.get();
+        }
+        if (!caughtUp) {
+            return fromSnapshot.apply(current);
+        }
+        try {
+            return database.get();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Catalog database unavailable, serving snapshot at seq {}: {}", current.getLastSeq(), e.getMessage());
+            return fromSnapshot.apply(current);
+        }
+    }
+    
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Apply changes recorded since the snapshot's sequence, or build a fresh
+     * snapshot if there is none, the needed changes were already pruned, or the
+     * sequence is behind the snapshot (a different or restored database).
+     * 
+     * Deliberately not read-only, so it always runs on the primary: a standby's
+     * sequence value runs ahead of the seqs actually handed out, and the watermark
+     * would give up on those phantom seqs and skip the changes that later get them.
+     */
+    @Scheduled(fixedDelayString = "${catalog.snapshot.sync-interval-ms:5000}")
+    @Transactional
+    public synchronized void sync() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            CatalogSnapshot current = snapshot;
+            long latestSeq = changeRepository.findLatestSeq();
+            if (current == null || latestSeq < current.getLastSeq()
+                    || changeRepository.findOldestSeq() > current.getLastSeq() + 1) {
+                snapshot = buildFullSnapshot(latestSeq);
+            } else {
+                if (position == null) {
+                    // Loaded from disk: everything above its seq is read again
+                    position = new ChangeSeqWatermark(current.getLastSeq(), maxCommitLagMs);
+                }
+                if (latestSeq > position.getWatermark()) {
+                    snapshot = applyChanges(current, latestSeq);
+                }
+            }
+            if (!caughtUp) {
+                caughtUp = true;
+                log.info("Catalog snapshot caught up with database at seq {}", snapshot.getLastSeq());
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Catalog snapshot sync failed: {}", e.getMessage());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${catalog.snapshot.write-interval-ms:60000}",
+               initialDelayString = "${catalog.snapshot.write-interval-ms:60000}")
+    public void persist() {
+        CatalogSnapshot current = snapshot;
+        if (!enabled || current == null || current == persisted) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(tmp, CatalogSnapshotCodec.encode(current));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            persisted = current;
+            log.debug("Wrote catalog snapshot at seq {} to {}", current.getLastSeq(), path);
+        } catch (IOException e) {
+            log.warn("Failed to write catalog snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+    
+    @Scheduled(cron = "${catalog.snapshot.prune-cron:0 30 3 * * *}")
+    @Transactional
+    public void pruneChanges() {
+        int removed = changeRepository.deleteOlderThan(LocalDateTime.now().minusDays(changeRetentionDays));
+        if (removed > 0) {
+            log.info("Pruned {} catalog change(s) older than {} days", removed, changeRetentionDays);
+        }
+    }
+    
+    /**
+     * Load everything. Transactions still in flight may hold seqs up to latestSeq, so
+     * the snapshot only claims the seqs before the oldest change of the last commit-lag
+     * window; the next sync reads that window again and tracks its holes.
+     */
+    private CatalogSnapshot buildFullSnapshot(long latestSeq) {
+        Long recentSeq = changeRepository.findFirstSeqWithin(Math.max(1, maxCommitLagMs / 1000));
+        long safeSeq = recentSeq != null ? Math.min(recentSeq - 1, latestSeq) : latestSeq;
+        
+        List<CategoryDto> categories = categoryRepository.findAll().stream()
+                .map(catalogService::toCategoryDto)
+                .collect(Collectors.toList());
+        List<ProductDto> products = productRepository.findAllProductDtos();
+        log.info("Built catalog snapshot from database: {} products, {} categories, seq {} (up to {})",
+                products.size(), categories.size(), safeSeq, latestSeq);
+        position = new ChangeSeqWatermark(safeSeq, maxCommitLagMs);
+        return new CatalogSnapshot(safeSeq, latestSeq, System.currentTimeMillis(), categories, products);
+    }
+    
+    private CatalogSnapshot applyChanges(CatalogSnapshot current, long latestSeq) {
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        List<Long> seqs = new ArrayList<>();
+        for (CatalogChange change : changeRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                position.getWatermark(), latestSeq)) {
+            seqs.add(change.getId());
+            if (!position.isNew(change.getId())) {
+                // Already applied on an earlier pass, read again only because of a hole below it
+                continue;
+            }
+            if (change.getEntityType() == CatalogChange.EntityType.PRODUCT) {
+                productIds.add(change.getEntityId());
+            } else {
+                categoryIds.add(change.getEntityId());
+            }
+        }
+        
+        // Whatever is gone from the database was deleted
+        List<CategoryDto> categories = categoryRepository.findAllById(categoryIds).stream()
+                .map(catalogService::toCategoryDto)
+                .collect(Collectors.toList());
+        List<ProductDto> products = productIds.isEmpty() ? List.of() : productRepository.findProductDtosByIdIn(productIds);
+        Set<Long> deletedCategories = new HashSet<>(categoryIds);
+        categories.forEach(c -> deletedCategories.remove(c.getId()));
+        Set<Long> deletedProducts = new HashSet<>(productIds);
+        products.forEach(p -> deletedProducts.remove(p.getId()));
+        
+        // Only move past the holes once the changes read with them are in the new snapshot
+        int abandoned = position.advance(seqs, latestSeq, System.currentTimeMillis());
+        if (abandoned > 0) {
+            log.warn("Gave up waiting for {} catalog change seq(s) after {} ms; assuming they rolled back",
+                    abandoned, maxCommitLagMs);
+        }
+        return current.withChanges(position.getWatermark(), latestSeq,
+                categories, deletedCategories, products, deletedProducts);
+    }
+}
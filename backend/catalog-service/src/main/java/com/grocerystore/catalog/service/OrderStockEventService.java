@@ -0,0 +1,88 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.config.RabbitMQConfig;
+import com.grocerystore.catalog.dto.OrderConfirmedEvent;
+import com.grocerystore.catalog.repository.ProcessedOrderEventRepository;
+import com.grocerystore.catalog.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decrements stock for confirmed orders from order-service's order.confirmed events.
+ * 
+ * A whole batch of events is applied in one transaction: quantities are summed
+ * per product and each product is updated once, in product id order so
+ * concurrent writers can't deadlock. Order ids are recorded in
+ * {@code processed_order_events}, so a redelivered order never decrements twice.
+ * If the batch fails, its events are retried one by one and those that still
+ * fail are parked on the dead-letter queue.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStockEventService {
+    
+    private final ProcessedOrderEventRepository processedOrderEventRepository;
+    private final ProductRepository productRepository;
+    private final StockStripeService stockStripeService;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    
+    @RabbitListener(queues = RabbitMQConfig.ORDER_CONFIRMED_QUEUE, containerFactory = "orderEventBatchListenerFactory")
+    public void onOrdersConfirmed(List<OrderConfirmedEvent> events) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(events));
+        } catch (RuntimeException batchFailure) {
+            log.warn("Stock batch of {} orders failed ({}), retrying individually", events.size(), batchFailure.getMessage());
+            for (OrderConfirmedEvent event : events) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(List.of(event)));
+                } catch (RuntimeException e) {
+                    log.error("Stock update for order {} failed, dead-lettering: {}", event.getOrderId(), e.getMessage());
+                    rabbitTemplate.convertAndSend(RabbitMQConfig.DEAD_LETTER_EXCHANGE, RabbitMQConfig.ORDER_CONFIRMED_DLQ, event);
+                }
+            }
+        }
+    }
+    
+    private void apply(List<OrderConfirmedEvent> events) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        int orders = 0;
+        for (OrderConfirmedEvent event : events) {
+            if (event.getOrderId() == null) {
+                throw new RuntimeException("Order event is missing orderId");
+            }
+            if (processedOrderEventRepository.markProcessed(event.getOrderId()) == 0) {
+                log.debug("Stock for order {} already applied", event.getOrderId());
+                continue;
+            }
+            orders++;
+            if (event.getItems() == null) {
+                continue;
+            }
+            for (OrderConfirmedEvent.Line line : event.getItems()) {
+                int quantity = line.getQuantity() != null ? line.getQuantity() : 1;
+                quantities.merge(line.getProductId(), quantity, Integer::sum);
+            }
+        }
+        
+        quantities.forEach((productId, quantity) -> {
+            // Hot products skip the products row and decrement a stock stripe instead
+            if (productRepository.decrementStock(productId, quantity) == 0
+                    && !stockStripeService.decrement(productId, quantity)) {
+                log.warn("Product {} not found, skipping stock decrement of {}", productId, quantity);
+            }
+        });
+        if (orders > 0) {
+            log.info("Applied stock for {} orders across {} products", orders, quantities.size());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.model.CatalogChange;
+import com.grocerystore.catalog.repository.CatalogChangeRepository;
+import com.grocerystore.catalog.util.PosCatalogEncoder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the POS catalog format from the in-memory catalog snapshot, so lane
+ * terminals can keep a local replica and sync it with small deltas.
+ */
+@Service
+@RequiredArgsConstructor
+public class PosCatalogService {
+    
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogChangeRepository changeRepository;
+    
+    // Every lane pulls the same full snapshot after a restart; encode it once per snapshot
+    private final AtomicReference<EncodedSnapshot> encodedSnapshot = new AtomicReference<>();
+    
+    public byte[] getSnapshot() {
+        CatalogSnapshot snapshot = currentSnapshot();
+        EncodedSnapshot cached = encodedSnapshot.get();
+        if (cached != null && cached.snapshot == snapshot) {
+            return cached.payload;
+        }
+        byte[] payload = PosCatalogEncoder.encodeSnapshot(
+                snapshot.getLastSeq(), snapshot.getCategories(), snapshot.getProducts());
+        encodedSnapshot.set(new EncodedSnapshot(snapshot, payload));
+        return payload;
+    }
+    
+    /**
+     * Changes since the given seq, or empty if the change log can't show that
+     * nothing is missing since then and the terminal has to reload the full snapshot.
+     * 
+     * Terminals are only ever handed the snapshot's commit-safe seq, so every change
+     * up to sinceSeq is already on the lane. The delta covers everything applied above
+     * it, and tells the lane to resume from the commit-safe seq again: changes above
+     * that are sent again next time, along with any that commit late below them.
+     * 
+     * Not read-only, so the change log is read on the primary like the watermark
+     * the seqs come from; a lagging replica would return a short range as complete.
+     */
+    @Transactional
+    public Optional<byte[]> getDelta(long sinceSeq) {
+        CatalogSnapshot snapshot = currentSnapshot();
+        if (sinceSeq < 0 || changeRepository.findOldestSeq() > sinceSeq + 1) {
+            return Optional.empty();
+        }
+        long appliedSeq = snapshot.getAppliedSeq();
+        if (sinceSeq >= appliedSeq) {
+            return Optional.of(PosCatalogEncoder.encodeDelta(sinceSeq, sinceSeq, List.of(), List.of(), List.of()));
+        }
+        
+        List<ProductDto> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Long productId : changeRepository.findChangedEntityIds(CatalogChange.EntityType.PRODUCT, sinceSeq, appliedSeq)) {
+            snapshot.findProduct(productId).ifPresentOrElse(changed::add, () -> deleted.add(productId));
+        }
+        // Categories are few; always send them so renames reach the lanes
+        long nextSeq = Math.max(sinceSeq, snapshot.getLastSeq());
+        return Optional.of(PosCatalogEncoder.encodeDelta(sinceSeq, nextSeq, snapshot.getCategories(), changed, deleted));
+    }
+    
+    private CatalogSnapshot currentSnapshot() {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot == null) {
+            throw new RuntimeException("Catalog snapshot not ready");
+        }
+        return snapshot;
+    }
+    
+    private record EncodedSnapshot(CatalogSnapshot snapshot, byte[] payload) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.config.RabbitMQConfig;
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.dto.ProductPriceChangedEvent;
+import com.grocerystore.catalog.model.CatalogChange;
+import com.grocerystore.catalog.model.EventPublishCursor;
+import com.grocerystore.catalog.repository.CatalogChangeRepository;
+import com.grocerystore.catalog.repository.EventPublishCursorRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes price and availability of changed products on product.changed,
+ * following the catalog snapshot the same way POS deltas do.
+ * 
+ * The position is a cursor row shared by all instances and locked with SKIP
+ * LOCKED, so only one instance publishes a given range. It holds the snapshot's
+ * commit-safe seq: every poll republishes the products changed after it, up to the
+ * snapshot's applied seq, so a change that commits late behind a hole still goes
+ * out once the snapshot picks it up. Each event carries the applied seq it reflects,
+ * which consumers compare against to drop stale ones.
+ * 
+ * The cursor starts at the snapshot's seq on first run: consumers load the full
+ * catalog themselves and only need changes from then on. Publishing is at-least-once.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductPriceEventPublisher {
+    
+    static final String CURSOR = "product-price";
+    
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogChangeRepository changeRepository;
+    private final EventPublishCursorRepository cursorRepository;
+    private final RabbitTemplate rabbitTemplate;
+    
+    @Value("${catalog.price-events.batch-size:500}")
+    private int batchSize;
+    
+    // The last snapshot this instance published from; a new poll only goes out for a newer one
+    private volatile CatalogSnapshot published;
+    
+    @Scheduled(fixedDelayString = "${catalog.price-events.poll-interval-ms:1000}")
+    @Transactional
+    public void publishChanges() {
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot == null || snapshot == published) {
+            return;
+        }
+        try {
+            EventPublishCursor cursor = cursorRepository.tryLock(CURSOR).orElse(null);
+            if (cursor == null) {
+                // Another instance is publishing
+                return;
+            }
+            long fromSeq = cursor.getSeq();
+            if (fromSeq < 0) {
+                cursor.setSeq(snapshot.getLastSeq());
+                published = snapshot;
+                return;
+            }
+            long seq = snapshot.getAppliedSeq();
+            if (seq > fromSeq) {
+                publishRange(snapshot, fromSeq, seq);
+            }
+            // Never move back: another instance's snapshot may have been further along
+            cursor.setSeq(Math.max(fromSeq, snapshot.getLastSeq()));
+            published = snapshot;
+        } catch (DataAccessException | AmqpException e) {
+            // Roll the cursor back, so the same range goes out again next time
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("Publishing price changes failed: {}", e.getMessage());
+        }
+    }
+    
+    private void publishRange(CatalogSnapshot snapshot, long fromSeq, long seq) {
+        List<ProductPriceChangedEvent.Line> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Long productId : changeRepository.findChangedEntityIds(CatalogChange.EntityType.PRODUCT, fromSeq, seq)) {
+            snapshot.findProduct(productId).ifPresentOrElse(
+                    product -> changed.add(toLine(product)),
+                    () -> deleted.add(productId));
+        }
+        for (int from = 0; from < changed.size(); from += batchSize) {
+            publish(new ProductPriceChangedEvent(seq,
+                    changed.subList(from, Math.min(from + batchSize, changed.size())), List.of()));
+        }
+        if (!deleted.isEmpty()) {
+            publish(new ProductPriceChangedEvent(seq, List.of(), deleted));
+        }
+        log.debug("Published price changes in ({}, {}]: {} changed, {} deleted", fromSeq, seq, changed.size(), deleted.size());
+    }
+    
+    private void publish(ProductPriceChangedEvent event) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.CATALOG_EXCHANGE, RabbitMQConfig.PRODUCT_CHANGED_ROUTING_KEY, event);
+    }
+    
+    private ProductPriceChangedEvent.Line toLine(ProductDto product) {
+        return new ProductPriceChangedEvent.Line(
+                product.getId(), product.getPrice(), product.getActive(), product.getStockQuantity());
+    }
+}
@@ -0,0 +1,206 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.model.Product;
+import com.grocerystore.catalog.model.ProductStockStripe;
+import com.grocerystore.catalog.repository.ProductRepository;
+import com.grocerystore.catalog.repository.ProductStockStripeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Striped stock counters for hot products.
+ * 
+ * During flash sales every checkout for the same product serializes on its
+ * products row lock. Products opted in here keep their stock split across N
+ * stripe rows instead: a decrement picks a random stripe, borrows from the
+ * others when that stripe runs dry, and products.stock_quantity is brought
+ * back in line by a scheduled reconcile. The stripes are the source of truth
+ * while striping is enabled.
+ *
+ * Striped products are flagged on their products row (stock_striped), so the
+ * regular decrement skips them in the same UPDATE and only then falls back here.
+ * The reconcile folds back only products decremented since its last run, and
+ * writes a products row (and so a catalog_changes row) only when its total moved;
+ * a slower full pass covers decrements made by instances that died before reconciling.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockStripeService {
+    
+    public static final int MAX_STRIPES = 64;
+    
+    private final ProductRepository productRepository;
+    private final ProductStockStripeRepository stripeRepository;
+    
+    // Products whose stripes changed since the last reconcile
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Enable striping for a product, spreading its current stock over the stripes.
+     * Calling it again for a striped product re-stripes with the new count.
+     */
+    @Transactional
+    public void enableStriping(Long productId, int stripeCount) {
+        if (stripeCount < 2 || stripeCount > MAX_STRIPES) {
+            throw new RuntimeException("Stripe count must be between 2 and " + MAX_STRIPES);
+        }
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        
+        int stock = product.getStockQuantity();
+        if (Boolean.TRUE.equals(product.getStockStriped())) {
+            stripeRepository.findByProductIdForUpdate(productId);
+            stock = (int) stripeRepository.sumQuantityByProductId(productId);
+            stripeRepository.deleteByProductId(productId);
+            stripeRepository.flush();
+        }
+        
+        stripeRepository.saveAll(buildStripes(productId, stock, stripeCount));
+        product.setStockQuantity(stock);
+        productRepository.save(product);
+        productRepository.setStockStriped(productId, true);
+        log.info("Enabled stock striping for product {} with {} stripes (stock {})", productId, stripeCount, stock);
+    }
+    
+    /**
+     * Fold the stripes back into the product row and return to single-row stock.
+     */
+    @Transactional
+    public void disableStriping(Long productId) {
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (!Boolean.TRUE.equals(product.getStockStriped())) {
+            return;
+        }
+        stripeRepository.findByProductIdForUpdate(productId);
+        int stock = (int) stripeRepository.sumQuantityByProductId(productId);
+        stripeRepository.deleteByProductId(productId);
+        product.setStockQuantity(stock);
+        productRepository.save(product);
+        productRepository.setStockStriped(productId, false);
+        log.info("Disabled stock striping for product {} (stock {})", productId, stock);
+    }
+    
+    /**
+     * Decrement stock for a product the plain products-row decrement didn't match.
+     * Returns false if the product has no stripes either, i.e. it doesn't exist.
+     */
+    @Transactional
+    public boolean decrement(Long productId, int quantity) {
+        // Fast path: one free stripe covering the whole decrement
+        if (stripeRepository.tryDecrementAny(productId, quantity) == 1) {
+            markDirty(productId);
+            return true;
+        }
+        
+        // Slow path: no single stripe is large enough (or free), so borrow across all of them
+        List<ProductStockStripe> stripes = stripeRepository.findByProductIdForUpdate(productId);
+        if (stripes.isEmpty()) {
+            return false;
+        }
+        int remaining = quantity;
+        for (ProductStockStripe stripe : stripes) {
+            int take = Math.min(Math.max(stripe.getQuantity(), 0), remaining);
+            stripe.setQuantity(stripe.getQuantity() - take);
+            remaining -= take;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        if (remaining > 0) {
+            // Oversold: keep today's behaviour of letting stock go negative rather than failing the order
+            ProductStockStripe first = stripes.get(0);
+            first.setQuantity(first.getQuantity() - remaining);
+            log.warn("Product {} oversold by {} across all stock stripes", productId, remaining);
+        }
+        stripeRepository.saveAll(stripes);
+        markDirty(productId);
+        return true;
+    }
+    
+    /**
+     * Replace the stock of a striped product (e.g. admin edit), spreading it over the existing stripes.
+     */
+    @Transactional
+    public void resetStock(Long productId, int stock) {
+        List<ProductStockStripe> stripes = stripeRepository.findByProductIdForUpdate(productId);
+        if (stripes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < stripes.size(); i++) {
+            stripes.get(i).setQuantity(stripeShare(stock, stripes.size(), i));
+        }
+        stripeRepository.saveAll(stripes);
+        markDirty(productId);
+    }
+    
+    /**
+     * Keep products.stock_quantity close to the striped totals so listings and
+     * availability checks stay accurate.
+     */
+    @Scheduled(fixedDelayString = "${catalog.stock.stripes.reconcile-interval-ms:2000}")
+    @Transactional
+    public void reconcile() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(dirty);
+        dirty.removeAll(productIds);
+        int updated = stripeRepository.reconcile(productIds);
+        if (updated > 0) {
+            log.debug("Reconciled striped stock for {} product(s)", updated);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${catalog.stock.stripes.full-reconcile-interval-ms:300000}",
+               initialDelayString = "${catalog.stock.stripes.full-reconcile-interval-ms:300000}")
+    @Transactional
+    public void reconcileAll() {
+        int updated = stripeRepository.reconcileAll();
+        if (updated > 0) {
+            log.info("Full reconcile corrected striped stock for {} product(s)", updated);
+        }
+    }
+    
+    // Only once committed, or the reconcile could read the stripes before the change lands
+    private void markDirty(Long productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.add(productId);
+                }
+            });
+        } else {
+            dirty.add(productId);
+        }
+    }
+    
+    private List<ProductStockStripe> buildStripes(Long productId, int stock, int stripeCount) {
+        List<ProductStockStripe> stripes = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes.add(ProductStockStripe.builder()
+                    .productId(productId)
+                    .stripeIndex(i)
+                    .quantity(stripeShare(stock, stripeCount, i))
+                    .build());
+        }
+        return stripes;
+    }
+    
+    // Even split; floor division keeps the total exact when stock is already negative
+    private static int stripeShare(int stock, int stripeCount, int index) {
+        return Math.floorDiv(stock, stripeCount) + (index < Math.floorMod(stock, stripeCount) ? 1 : 0);
+    }
+}
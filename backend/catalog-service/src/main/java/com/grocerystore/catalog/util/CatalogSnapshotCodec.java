@@ -0,0 +1,152 @@
+package com.grocerystore.catalog.util;
+
+import com.grocerystore.catalog.dto.CategoryDto;
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.service.CatalogSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of a {@link CatalogSnapshot} for the on-disk copy.
+ * 
+ * Layout (big-endian): magic, version, last change seq, build time, categories,
+ * products, then a CRC32 of everything before it. Strings are length-prefixed
+ * UTF-8 with -1 for null; prices are stored as cents.
+ */
+public final class CatalogSnapshotCodec {
+    
+    private static final int MAGIC = 0x47435331; // "GCS1"
+    private static final short VERSION = 1;
+    
+    private CatalogSnapshotCodec() {
+    }
+    
+    public static byte[] encode(CatalogSnapshot snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(snapshot.getLastSeq());
+            out.writeLong(snapshot.getBuiltAt());
+            
+            out.writeInt(snapshot.getCategories().size());
+            for (CategoryDto category : snapshot.getCategories()) {
+                out.writeLong(category.getId());
+                writeString(out, category.getName());
+                writeString(out, category.getDescription());
+            }
+            
+            out.writeInt(snapshot.getProducts().size());
+            for (ProductDto product : snapshot.getProducts()) {
+                out.writeLong(product.getId());
+                writeString(out, product.getName());
+                writeString(out, product.getDescription());
+                out.writeLong(toCents(product.getPrice()));
+                out.writeInt(product.getStockQuantity() != null ? product.getStockQuantity() : 0);
+                writeString(out, product.getImageUrl());
+                writeString(out, product.getProductCode());
+                out.writeLong(product.getCategoryId() != null ? product.getCategoryId() : 0L);
+                out.writeBoolean(Boolean.TRUE.equals(product.getActive()));
+            }
+            out.flush();
+            
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode catalog snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decode a snapshot, typically from a read-only memory-mapped file.
+     */
+    public static CatalogSnapshot decode(ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate();
+        if (data.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("Catalog snapshot is truncated");
+        }
+        int bodyLength = data.remaining() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(data.position(), bodyLength));
+        if (crc.getValue() != data.getLong(data.position() + bodyLength)) {
+            throw new IllegalArgumentException("Catalog snapshot checksum mismatch");
+        }
+        
+        if (data.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a catalog snapshot");
+        }
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported catalog snapshot version " + version);
+        }
+        long lastSeq = data.getLong();
+        long builtAt = data.getLong();
+        
+        int categoryCount = data.getInt();
+        List<CategoryDto> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            categories.add(CategoryDto.builder()
+                    .id(data.getLong())
+                    .name(readString(data))
+                    .description(readString(data))
+                    .build());
+        }
+        
+        int productCount = data.getInt();
+        List<ProductDto> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            products.add(ProductDto.builder()
+                    .id(data.getLong())
+                    .name(readString(data))
+                    .description(readString(data))
+                    .price(BigDecimal.valueOf(data.getLong(), 2))
+                    .stockQuantity(data.getInt())
+                    .imageUrl(readString(data))
+                    .productCode(readString(data))
+                    .categoryId(data.getLong())
+                    .active(data.get() != 0)
+                    .build());
+        }
+        
+        // Category names are denormalized onto products only in memory
+        CatalogSnapshot snapshot = new CatalogSnapshot(lastSeq, builtAt, categories, products);
+        products.forEach(p -> snapshot.findCategory(p.getCategoryId())
+                .ifPresent(c -> p.setCategoryName(c.getName())));
+        return snapshot;
+    }
+    
+    public static long toCents(BigDecimal amount) {
+        return amount == null ? 0L : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.grocerystore.catalog.util;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Commit-safe position in the catalog change sequence.
+ *
+ * Change ids are taken from a sequence when the row is inserted, so a slow
+ * transaction can commit seq 11 after seq 12 is already visible, and one that
+ * rolls back leaves 11 missing for good. A reader that just moves past 12 never
+ * sees the late 11.
+ *
+ * This tracks the holes below the highest seq read so far. The watermark is the
+ * highest seq up to which nothing is missing: readers resume after it, so the
+ * changes above it are read again until the holes below them are settled. A hole
+ * is settled when its change shows up, or once it has stayed empty for longer than
+ * the maximum commit lag, after which it is taken to be a rollback.
+ *
+ * Not thread-safe; each reader keeps its own.
+ */
+public final class ChangeSeqWatermark {
+    
+    private final long maxCommitLagMs;
+    private final TreeMap<Long, Long> holes = new TreeMap<>(); // seq -> when first noticed
+    private long watermark;
+    private long highestSeen;
+    
+    public ChangeSeqWatermark(long watermark, long maxCommitLagMs) {
+        this.watermark = watermark;
+        this.highestSeen = watermark;
+        this.maxCommitLagMs = maxCommitLagMs;
+    }
+    
+    public long getWatermark() {
+        return watermark;
+    }
+    
+    public long getHighestSeen() {
+        return highestSeen;
+    }
+    
+    /**
+     * Whether a seq read after the watermark hasn't been seen before: it is
+     * above everything read so far, or it fills a hole.
+     */
+    public boolean isNew(long seq) {
+        return seq > highestSeen || holes.containsKey(seq);
+    }
+    
+    /**
+     * Record the seqs read after the watermark up to {@code upToSeq} and move the
+     * watermark. Seqs up to {@code upToSeq} that weren't read become holes.
+     * Returns the number of holes given up on as rollbacks.
+     */
+    public int advance(Collection<Long> seqs, long upToSeq, long nowMs) {
+        Set<Long> read = new HashSet<>(seqs);
+        holes.keySet().removeAll(read);
+        for (long seq = highestSeen + 1; seq <= upToSeq; seq++) {
+            if (!read.contains(seq)) {
+                holes.put(seq, nowMs);
+            }
+        }
+        highestSeen = Math.max(highestSeen, upToSeq);
+        
+        int expired = holes.size();
+        holes.values().removeIf(noticedAt -> nowMs - noticedAt > maxCommitLagMs);
+        expired -= holes.size();
+        
+        watermark = holes.isEmpty() ? highestSeen : holes.firstKey() - 1;
+        return expired;
+    }
+}
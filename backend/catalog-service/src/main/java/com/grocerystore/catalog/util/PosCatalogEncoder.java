@@ -0,0 +1,140 @@
+package com.grocerystore.catalog.util;
+
+import com.grocerystore.catalog.dto.CategoryDto;
+import com.grocerystore.catalog.dto.ProductDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary catalog for POS terminals.
+ * 
+ * Payload (big-endian):
+ * <pre>
+ *   int    magic "GPOS"
+ *   short  version
+ *   byte   kind (0 = full snapshot, 1 = delta)
+ *   long   base seq (0 for a full snapshot)
+ *   long   seq the terminal should ask for deltas from next
+ *   int    dictionary size, then per entry: short length + UTF-8 bytes
+ *   int    category count, then per category: long id, int name ref
+ *   int    product count, then fixed-width 33-byte records:
+ *            long id, int name ref, int product code ref (-1 if none),
+ *            long category id, int price in cents, int stock, byte flags (bit 0 = active)
+ *   int    deleted product count, then long ids (always 0 for a full snapshot)
+ * </pre>
+ * Names and product codes are stored once in the dictionary and referenced
+ * by index, so records stay fixed-width and terminals can index them directly.
+ * Descriptions and images are left out; lanes only need to look up and price.
+ */
+public final class PosCatalogEncoder {
+    
+    public static final String CONTENT_TYPE = "application/vnd.grocerystore.pos-catalog";
+    
+    private static final int MAGIC = 0x47504F53; // "GPOS"
+    private static final short VERSION = 1;
+    private static final byte KIND_SNAPSHOT = 0;
+    private static final byte KIND_DELTA = 1;
+    private static final byte FLAG_ACTIVE = 1;
+    
+    private PosCatalogEncoder() {
+    }
+    
+    public static byte[] encodeSnapshot(long seq, Collection<CategoryDto> categories, Collection<ProductDto> products) {
+        return encode(KIND_SNAPSHOT, 0L, seq, categories, products, List.of());
+    }
+    
+    public static byte[] encodeDelta(long baseSeq, long seq, Collection<CategoryDto> categories,
+                                     Collection<ProductDto> products, Collection<Long> deletedProductIds) {
+        return encode(KIND_DELTA, baseSeq, seq, categories, products, deletedProductIds);
+    }
+    
+    private static byte[] encode(byte kind, long baseSeq, long seq, Collection<CategoryDto> categories,
+                                 Collection<ProductDto> products, Collection<Long> deletedProductIds) {
+        Dictionary dictionary = new Dictionary();
+        int[] categoryNameRefs = new int[categories.size()];
+        int i = 0;
+        for (CategoryDto category : categories) {
+            categoryNameRefs[i++] = dictionary.ref(category.getName());
+        }
+        int[] productNameRefs = new int[products.size()];
+        int[] productCodeRefs = new int[products.size()];
+        i = 0;
+        for (ProductDto product : products) {
+            productNameRefs[i] = dictionary.ref(product.getName());
+            productCodeRefs[i] = dictionary.ref(product.getProductCode());
+            i++;
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + products.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(kind);
+            out.writeLong(baseSeq);
+            out.writeLong(seq);
+            
+            out.writeInt(dictionary.entries.size());
+            for (byte[] entry : dictionary.entries) {
+                out.writeShort(entry.length);
+                out.write(entry);
+            }
+            
+            out.writeInt(categories.size());
+            i = 0;
+            for (CategoryDto category : categories) {
+                out.writeLong(category.getId());
+                out.writeInt(categoryNameRefs[i++]);
+            }
+            
+            out.writeInt(products.size());
+            i = 0;
+            for (ProductDto product : products) {
+                out.writeLong(product.getId());
+                out.writeInt(productNameRefs[i]);
+                out.writeInt(productCodeRefs[i]);
+                out.writeLong(product.getCategoryId() != null ? product.getCategoryId() : 0L);
+                out.writeInt(Math.toIntExact(CatalogSnapshotCodec.toCents(product.getPrice())));
+                out.writeInt(product.getStockQuantity() != null ? product.getStockQuantity() : 0);
+                out.writeByte(Boolean.TRUE.equals(product.getActive()) ? FLAG_ACTIVE : 0);
+                i++;
+            }
+            
+            out.writeInt(deletedProductIds.size());
+            for (Long id : deletedProductIds) {
+                out.writeLong(id);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode POS catalog", e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static class Dictionary {
+        private static final int MAX_ENTRY_BYTES = 0xFFFF;
+        
+        final List<byte[]> entries = new ArrayList<>();
+        final Map<String, Integer> refs = new HashMap<>();
+        
+        int ref(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return refs.computeIfAbsent(value, v -> {
+                byte[] encoded = v.getBytes(StandardCharsets.UTF_8);
+                if (encoded.length > MAX_ENTRY_BYTES) {
+                    throw new IllegalArgumentException("Dictionary entry too long: " + v.substring(0, 40) + "...");
+                }
+                entries.add(encoded);
+                return entries.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Orders whose confirmed event has already decremented stock, so redeliveries are no-ops
+CREATE TABLE processed_order_events (
+    order_id BIGINT PRIMARY KEY,
+    processed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,7 @@
+-- Striping is flagged on the product row, so the stock decrement path can tell a
+-- striped product apart inside its single UPDATE instead of counting stripe rows
+-- on every decrement. Only StockStripeService changes it, under the product row lock.
+ALTER TABLE products ADD COLUMN stock_striped BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE products SET stock_striped = TRUE
+WHERE id IN (SELECT DISTINCT product_id FROM product_stock_stripes);
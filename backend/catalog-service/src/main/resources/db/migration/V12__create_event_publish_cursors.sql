@@ -0,0 +1,9 @@
+-- How far each change-following event stream has been published. Shared by all
+-- catalog-service instances; the row is locked with SKIP LOCKED so only one
+-- instance publishes a stream at a time. -1 means not started yet.
+CREATE TABLE event_publish_cursors (
+    name VARCHAR(50) PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+INSERT INTO event_publish_cursors (name, seq) VALUES ('product-price', -1);
@@ -0,0 +1,13 @@
+-- Striped stock counters for hot products (flash sales).
+-- A product with rows here has its stock split across N stripes; decrements
+-- hit a random stripe instead of the single products row, and a background
+-- job folds the stripe totals back into products.stock_quantity.
+CREATE TABLE product_stock_stripes (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    stripe_index INTEGER NOT NULL,
+    quantity INTEGER NOT NULL DEFAULT 0,
+    UNIQUE(product_id, stripe_index)
+);
+
+CREATE INDEX idx_stock_stripes_product ON product_stock_stripes(product_id);
@@ -0,0 +1,31 @@
+-- Change sequence for products and categories.
+-- Every insert/update/delete appends a row here; consumers (the on-disk catalog
+-- snapshot, POS terminals) remember the last seq they applied and catch up from it.
+CREATE TABLE catalog_changes (
+    id BIGSERIAL PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL, -- 'PRODUCT', 'CATEGORY'
+    entity_id BIGINT NOT NULL,
+    change_type VARCHAR(10) NOT NULL, -- 'UPSERT', 'DELETE'
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_catalog_changes_changed_at ON catalog_changes(changed_at);
+
+CREATE OR REPLACE FUNCTION record_catalog_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO catalog_changes (entity_type, entity_id, change_type) VALUES (TG_ARGV[0], OLD.id, 'DELETE');
+        RETURN OLD;
+    END IF;
+    INSERT INTO catalog_changes (entity_type, entity_id, change_type) VALUES (TG_ARGV[0], NEW.id, 'UPSERT');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_catalog_change
+AFTER INSERT OR UPDATE OR DELETE ON products
+FOR EACH ROW EXECUTE FUNCTION record_catalog_change('PRODUCT');
+
+CREATE TRIGGER trg_categories_catalog_change
+AFTER INSERT OR UPDATE OR DELETE ON categories
+FOR EACH ROW EXECUTE FUNCTION record_catalog_change('CATEGORY');
@@ -0,0 +1,79 @@
+package com.grocerystore.catalog.config;
+
+import com.grocerystore.catalog.service.CatalogSnapshotService;
+import com.grocerystore.catalog.service.PosCatalogService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Only read-only transactions may reach a replica, and the reads keyed by the
+ * change sequence must never be read-only.
+ */
+class ReadReplicaRoutingDataSourceTest {
+    
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private ReadReplicaRoutingDataSource routing;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getDouble(1)).thenReturn(0.0);
+        
+        routing = new ReadReplicaRoutingDataSource(primary, Map.of("replica-0", replica), 5);
+        routing.afterPropertiesSet();
+        routing.checkReplicaLag();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+    
+    @Test
+    void readOnlyTransactionsGoToAHealthyReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+    }
+    
+    @Test
+    void snapshotSyncNeverRunsOnAReplica() throws Exception {
+        assertRunsOnPrimary(CatalogSnapshotService.class.getMethod("sync"));
+    }
+    
+    @Test
+    void posDeltaNeverRunsOnAReplica() throws Exception {
+        assertRunsOnPrimary(PosCatalogService.class.getMethod("getDelta", long.class));
+    }
+    
+    private void assertRunsOnPrimary(Method method) {
+        TransactionAttribute attribute = new AnnotationTransactionAttributeSource()
+                .getTransactionAttribute(method, method.getDeclaringClass());
+        assertNotNull(attribute, method + " must run in a transaction");
+        
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(attribute.isReadOnly());
+        
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+}
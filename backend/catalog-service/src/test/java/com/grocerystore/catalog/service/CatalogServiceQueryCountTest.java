@@ -0,0 +1,126 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.dto.RecipeDto;
+import com.grocerystore.catalog.model.Category;
+import com.grocerystore.catalog.model.Product;
+import com.grocerystore.catalog.model.Recipe;
+import com.grocerystore.catalog.model.RecipeIngredient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the number of SQL statements per catalog listing, so lazy
+ * category loads or per-row lookups don't creep back in.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({CatalogService.class, StockStripeService.class, TheMealDbService.class})
+class CatalogServiceQueryCountTest {
+    
+    @Autowired
+    private CatalogService catalogService;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    private Category dairy;
+    
+    @BeforeEach
+    void setUp() {
+        List<Category> categories = new ArrayList<>();
+        for (String name : List.of("Dairy", "Bakery", "Produce")) {
+            categories.add(entityManager.persist(Category.builder().name(name).build()));
+        }
+        dairy = categories.get(0);
+        
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            products.add(entityManager.persist(Product.builder()
+                    .name("Product " + i)
+                    .price(new BigDecimal("1.99"))
+                    .stockQuantity(i % 4 == 0 ? 0 : 10) // every fourth product is out of stock
+                    .category(categories.get(i % categories.size()))
+                    .active(true)
+                    .build()));
+        }
+        
+        for (int r = 0; r < 3; r++) {
+            Recipe recipe = Recipe.builder().name("Recipe " + r).build();
+            List<RecipeIngredient> ingredients = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ingredients.add(RecipeIngredient.builder()
+                        .recipe(recipe)
+                        .productId(products.get(r * 3 + i).getId())
+                        .productName("Ingredient " + i)
+                        .build());
+            }
+            recipe.setIngredients(ingredients);
+            entityManager.persist(recipe);
+        }
+        
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    @Test
+    void testGetAllProducts_SingleStatement() {
+        List<ProductDto> products = catalogService.getAllProducts();
+        
+        assertEquals(9, products.size());
+        assertNotNull(products.get(0).getCategoryName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+    
+    @Test
+    void testGetAllProductsForAdmin_SingleStatement() {
+        List<ProductDto> products = catalogService.getAllProductsForAdmin();
+        
+        assertEquals(12, products.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+    
+    @Test
+    void testGetProductsByCategory_SingleStatement() {
+        List<ProductDto> products = catalogService.getProductsByCategory(dairy.getId());
+        
+        assertEquals(3, products.size());
+        assertTrue(products.stream().allMatch(p -> "Dairy".equals(p.getCategoryName())));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+    
+    @Test
+    void testGetAllRecipes_IngredientsAndProductsBatched() {
+        List<RecipeDto> recipes = catalogService.getAllRecipes();
+        
+        assertEquals(3, recipes.size());
+        assertEquals(3, recipes.get(0).getIngredients().size());
+        // recipes with ingredients, then all ingredient products
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
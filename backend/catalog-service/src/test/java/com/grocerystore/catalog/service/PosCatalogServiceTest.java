@@ -0,0 +1,141 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.dto.CategoryDto;
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.model.CatalogChange;
+import com.grocerystore.catalog.repository.CatalogChangeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Lanes must never be moved past a seq that may still commit late, and must be
+ * sent back to a full reload whenever the change log can't cover their gap.
+ */
+@ExtendWith(MockitoExtension.class)
+class PosCatalogServiceTest {
+    
+    @Mock
+    private CatalogSnapshotService catalogSnapshotService;
+    
+    @Mock
+    private CatalogChangeRepository changeRepository;
+    
+    @InjectMocks
+    private PosCatalogService posCatalogService;
+    
+    @Test
+    void deltaSendsAppliedChangesButResumesFromCommitSafeSeq() {
+        // Seqs 11-12 are settled, 13 is still a hole, 14-15 are applied
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(12, 15, product(1L), product(2L)));
+        when(changeRepository.findOldestSeq()).thenReturn(1L);
+        when(changeRepository.findChangedEntityIds(CatalogChange.EntityType.PRODUCT, 10L, 15L))
+                .thenReturn(List.of(1L, 3L));
+        
+        Delta delta = Delta.decode(posCatalogService.getDelta(10).orElseThrow());
+        
+        assertEquals(10, delta.baseSeq);
+        assertEquals(12, delta.seq);
+        assertEquals(List.of(1L), delta.productIds);
+        assertEquals(List.of(3L), delta.deletedIds);
+    }
+    
+    @Test
+    void laneAheadOfThisInstanceKeepsItsSeq() {
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(12, 15, product(1L)));
+        when(changeRepository.findOldestSeq()).thenReturn(1L);
+        when(changeRepository.findChangedEntityIds(CatalogChange.EntityType.PRODUCT, 14L, 15L))
+                .thenReturn(List.of(1L));
+        
+        Delta delta = Delta.decode(posCatalogService.getDelta(14).orElseThrow());
+        
+        assertEquals(14, delta.seq);
+        assertEquals(List.of(1L), delta.productIds);
+    }
+    
+    @Test
+    void upToDateLaneGetsEmptyDelta() {
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(15, 15, product(1L)));
+        when(changeRepository.findOldestSeq()).thenReturn(1L);
+        
+        Delta delta = Delta.decode(posCatalogService.getDelta(15).orElseThrow());
+        
+        assertEquals(15, delta.seq);
+        assertTrue(delta.productIds.isEmpty());
+        verify(changeRepository, never()).findChangedEntityIds(any(), anyLong(), anyLong());
+    }
+    
+    @Test
+    void prunedOrEmptiedLogRequiresFullReload() {
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(40, 40, product(1L)));
+        
+        // Oldest change left is 21, lane is at 10
+        when(changeRepository.findOldestSeq()).thenReturn(21L);
+        assertTrue(posCatalogService.getDelta(10).isEmpty());
+        
+        // Log pruned empty: the next seq to be issued is 41
+        when(changeRepository.findOldestSeq()).thenReturn(41L);
+        assertTrue(posCatalogService.getDelta(10).isEmpty());
+        assertTrue(posCatalogService.getDelta(40).isPresent());
+        
+        assertTrue(posCatalogService.getDelta(-1).isEmpty());
+    }
+    
+    private static CatalogSnapshot snapshot(long lastSeq, long appliedSeq, ProductDto... products) {
+        CategoryDto category = CategoryDto.builder().id(1L).name("Dairy").build();
+        return new CatalogSnapshot(lastSeq, appliedSeq, 0L, List.of(category), List.of(products));
+    }
+    
+    private static ProductDto product(Long id) {
+        return ProductDto.builder()
+                .id(id)
+                .name("Product " + id)
+                .price(new BigDecimal("1.99"))
+                .stockQuantity(5)
+                .categoryId(1L)
+                .active(true)
+                .build();
+    }
+    
+    // Just enough of the POS format to read back seqs and ids
+    private record Delta(long baseSeq, long seq, List<Long> productIds, List<Long> deletedIds) {
+        
+        static Delta decode(byte[] payload) {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            in.getInt();
+            in.getShort();
+            in.get();
+            long baseSeq = in.getLong();
+            long seq = in.getLong();
+            int dictionarySize = in.getInt();
+            for (int i = 0; i < dictionarySize; i++) {
+                int length = in.getShort();
+                in.position(in.position() + length);
+            }
+            int categoryCount = in.getInt();
+            in.position(in.position() + categoryCount * 12);
+            List<Long> productIds = new ArrayList<>();
+            int productCount = in.getInt();
+            for (int i = 0; i < productCount; i++) {
+                productIds.add(in.getLong());
+                in.position(in.position() + 25);
+            }
+            List<Long> deletedIds = new ArrayList<>();
+            int deletedCount = in.getInt();
+            for (int i = 0; i < deletedCount; i++) {
+                deletedIds.add(in.getLong());
+            }
+            return new Delta(baseSeq, seq, productIds, deletedIds);
+        }
+    }
+}
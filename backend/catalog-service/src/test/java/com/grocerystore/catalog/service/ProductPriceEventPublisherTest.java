@@ -0,0 +1,118 @@
+package com.grocerystore.catalog.service;
+
+import com.grocerystore.catalog.config.RabbitMQConfig;
+import com.grocerystore.catalog.dto.ProductDto;
+import com.grocerystore.catalog.dto.ProductPriceChangedEvent;
+import com.grocerystore.catalog.model.CatalogChange;
+import com.grocerystore.catalog.model.EventPublishCursor;
+import com.grocerystore.catalog.repository.CatalogChangeRepository;
+import com.grocerystore.catalog.repository.EventPublishCursorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The shared cursor must stay at the commit-safe seq, so changes behind a hole go
+ * out again, and only the instance holding it may publish.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductPriceEventPublisherTest {
+    
+    @Mock
+    private CatalogSnapshotService catalogSnapshotService;
+    
+    @Mock
+    private CatalogChangeRepository changeRepository;
+    
+    @Mock
+    private EventPublishCursorRepository cursorRepository;
+    
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    
+    @InjectMocks
+    private ProductPriceEventPublisher publisher;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(publisher, "batchSize", 500);
+    }
+    
+    @Test
+    void firstRunStartsAtTheSnapshotWithoutPublishing() {
+        EventPublishCursor cursor = new EventPublishCursor(ProductPriceEventPublisher.CURSOR, -1L);
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(12, 15, product(1L)));
+        when(cursorRepository.tryLock(ProductPriceEventPublisher.CURSOR)).thenReturn(Optional.of(cursor));
+        
+        publisher.publishChanges();
+        
+        assertEquals(12L, cursor.getSeq());
+        verifyNoInteractions(rabbitTemplate);
+    }
+    
+    @Test
+    void publishesUpToAppliedSeqButKeepsCursorAtCommitSafeSeq() {
+        EventPublishCursor cursor = new EventPublishCursor(ProductPriceEventPublisher.CURSOR, 10L);
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(12, 15, product(1L)));
+        when(cursorRepository.tryLock(ProductPriceEventPublisher.CURSOR)).thenReturn(Optional.of(cursor));
+        when(changeRepository.findChangedEntityIds(CatalogChange.EntityType.PRODUCT, 10L, 15L))
+                .thenReturn(List.of(1L, 2L));
+        
+        publisher.publishChanges();
+        
+        ArgumentCaptor<ProductPriceChangedEvent> events = ArgumentCaptor.forClass(ProductPriceChangedEvent.class);
+        verify(rabbitTemplate, times(2)).convertAndSend(eq(RabbitMQConfig.CATALOG_EXCHANGE),
+                eq(RabbitMQConfig.PRODUCT_CHANGED_ROUTING_KEY), events.capture());
+        ProductPriceChangedEvent changed = events.getAllValues().get(0);
+        ProductPriceChangedEvent deleted = events.getAllValues().get(1);
+        assertEquals(15L, changed.getSeq());
+        assertEquals(1L, changed.getProducts().get(0).getProductId());
+        assertEquals(List.of(2L), deleted.getDeletedProductIds());
+        assertEquals(12L, cursor.getSeq());
+    }
+    
+    @Test
+    void cursorNeverMovesBackAndLockedCursorMeansNoPublishing() {
+        EventPublishCursor cursor = new EventPublishCursor(ProductPriceEventPublisher.CURSOR, 20L);
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(12, 15, product(1L)));
+        when(cursorRepository.tryLock(ProductPriceEventPublisher.CURSOR)).thenReturn(Optional.of(cursor));
+        
+        publisher.publishChanges();
+        assertEquals(20L, cursor.getSeq());
+        
+        when(catalogSnapshotService.getSnapshot()).thenReturn(snapshot(30, 30, product(1L)));
+        when(cursorRepository.tryLock(ProductPriceEventPublisher.CURSOR)).thenReturn(Optional.empty());
+        publisher.publishChanges();
+        
+        verifyNoInteractions(rabbitTemplate);
+        verify(changeRepository, never()).findChangedEntityIds(any(), anyLong(), anyLong());
+    }
+    
+    private static CatalogSnapshot snapshot(long lastSeq, long appliedSeq, ProductDto... products) {
+        return new CatalogSnapshot(lastSeq, appliedSeq, 0L, List.of(), List.of(products));
+    }
+    
+    private static ProductDto product(Long id) {
+        return ProductDto.builder()
+                .id(id)
+                .name("Product " + id)
+                .price(new BigDecimal("2.49"))
+                .stockQuantity(0)
+                .categoryId(1L)
+                .active(true)
+                .build();
+    }
+}
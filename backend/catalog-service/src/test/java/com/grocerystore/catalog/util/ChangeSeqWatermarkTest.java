@@ -0,0 +1,58 @@
+package com.grocerystore.catalog.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Late commits must hold the watermark back until they show up or are given up on.
+ */
+class ChangeSeqWatermarkTest {
+    
+    private static final long LAG_MS = 1000;
+    
+    @Test
+    void advancesToHighestSeqWhenNothingIsMissing() {
+        ChangeSeqWatermark position = new ChangeSeqWatermark(10, LAG_MS);
+        
+        assertEquals(0, position.advance(List.of(11L, 12L, 13L), 13, 0));
+        
+        assertEquals(13, position.getWatermark());
+        assertFalse(position.isNew(12));
+        assertTrue(position.isNew(14));
+    }
+    
+    @Test
+    void holdsBackAtAHoleUntilItsChangeCommits() {
+        ChangeSeqWatermark position = new ChangeSeqWatermark(10, LAG_MS);
+        
+        position.advance(List.of(11L, 13L), 13, 0);
+        assertEquals(11, position.getWatermark());
+        assertTrue(position.isNew(12));
+        assertFalse(position.isNew(13));
+        
+        // Read again from the watermark: 12 has committed, 13 is not new
+        position.advance(List.of(12L, 13L), 13, 500);
+        assertEquals(13, position.getWatermark());
+        assertFalse(position.isNew(12));
+    }
+    
+    @Test
+    void givesUpOnHolesOlderThanTheCommitLag() {
+        ChangeSeqWatermark position = new ChangeSeqWatermark(10, LAG_MS);
+        
+        position.advance(List.of(11L, 14L), 14, 0);
+        assertEquals(11, position.getWatermark());
+        
+        // 12 and 13 never show up (rolled back); 15 is still uncommitted but recent
+        assertEquals(0, position.advance(List.of(14L), 15, 900));
+        assertEquals(11, position.getWatermark());
+        assertEquals(2, position.advance(List.of(14L), 15, 1500));
+        assertEquals(14, position.getWatermark());
+        
+        position.advance(List.of(15L), 15, 1600);
+        assertEquals(15, position.getWatermark());
+    }
+}
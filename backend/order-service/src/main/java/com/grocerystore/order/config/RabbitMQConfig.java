@@ -1,13 +1,16 @@
 package com.grocerystore.order.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class RabbitMQConfig {
@@ -15,6 +18,17 @@ public class RabbitMQConfig {
     public static final String EXCHANGE_NAME = "order-exchange";
     public static final String QUEUE_NAME = "order-created-queue";
     public static final String ROUTING_KEY = "order.created";
+    public static final String STATUS_CHANGED_ROUTING_KEY = "order.status.changed";
+    
+    public static final String PAYMENT_EXCHANGE = "payment-exchange";
+    public static final String PAYMENT_SUCCEEDED_QUEUE = "order-payment-succeeded-queue";
+    public static final String PAYMENT_SUCCEEDED_ROUTING_KEY = "payment.succeeded";
+    public static final String DEAD_LETTER_EXCHANGE = "order-dlx";
+    public static final String PAYMENT_SUCCEEDED_DLQ = "order-payment-succeeded-dlq";
+    
+    // Owned by catalog-service; declared here too (same arguments) so either service can start first
+    public static final String CATALOG_EXCHANGE = "catalog-exchange";
+    public static final String PRODUCT_CHANGED_ROUTING_KEY = "product.changed";
     
     @Bean
     public RabbitAdmin rabbitAdmin(ConnectionFactory connectionFactory) {
@@ -41,16 +55,132 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY);
     }
     
+    @Bean
+    public TopicExchange paymentExchange() {
+        return new TopicExchange(PAYMENT_EXCHANGE, true, false);
+    }
+    
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE, true, false);
+    }
+    
+    @Bean
+    public Queue paymentSucceededQueue() {
+        return QueueBuilder.durable(PAYMENT_SUCCEEDED_QUEUE)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(PAYMENT_SUCCEEDED_DLQ)
+                .build();
+    }
+    
+    @Bean
+    public Queue paymentSucceededDeadLetterQueue() {
+        return QueueBuilder.durable(PAYMENT_SUCCEEDED_DLQ).build();
+    }
+    
+    @Bean
+    public Binding paymentSucceededBinding() {
+        return BindingBuilder
+                .bind(paymentSucceededQueue())
+                .to(paymentExchange())
+                .with(PAYMENT_SUCCEEDED_ROUTING_KEY);
+    }
+    
+    @Bean
+    public Binding paymentSucceededDeadLetterBinding() {
+        return BindingBuilder
+                .bind(paymentSucceededDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(PAYMENT_SUCCEEDED_DLQ);
+    }
+    
+    @Bean
+    public TopicExchange catalogExchange() {
+        return new TopicExchange(CATALOG_EXCHANGE, true, false);
+    }
+    
+    /**
+     * Each instance keeps its own in-memory price cache, so each gets its own
+     * server-named queue; it goes away with the connection.
+     */
+    @Bean
+    public Queue productPriceQueue() {
+        return new AnonymousQueue();
+    }
+    
+    @Bean
+    public Binding productPriceBinding() {
+        return BindingBuilder
+                .bind(productPriceQueue())
+                .to(catalogExchange())
+                .with(PRODUCT_CHANGED_ROUTING_KEY);
+    }
+    
+    /**
+     * Status changes are fanned out to every instance, each of which serves its
+     * own SSE subscribers, so this is per instance too.
+     */
+    @Bean
+    public Queue orderStatusQueue() {
+        return new AnonymousQueue();
+    }
+    
+    @Bean
+    public Binding orderStatusBinding() {
+        return BindingBuilder
+                .bind(orderStatusQueue())
+                .to(orderExchange())
+                .with(STATUS_CHANGED_ROUTING_KEY);
+    }
+    
+    /**
+     * Batch consumer for payment events: up to batch-size messages are handed
+     * over together, or whatever arrived within receive-timeout-ms, so a quiet
+     * queue still confirms within a fraction of a second. Rejected messages are
+     * not requeued; they go to the dead-letter queue.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory paymentBatchListenerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${orders.payments.batch-size:50}") int batchSize,
+            @Value("${orders.payments.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Value("${orders.payments.consumers:2}") int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setConcurrentConsumers(consumers);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+    
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
     
     @Bean
+    @Primary
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(jsonMessageConverter());
         return template;
     }
+    
+    /**
+     * Used only by the outbox relay: unroutable messages come back to it instead
+     * of being dropped, so it can retry them.
+     */
+    @Bean
+    public RabbitTemplate outboxRabbitTemplate(ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate(connectionFactory);
+        template.setMessageConverter(jsonMessageConverter());
+        template.setMandatory(true);
+        return template;
+    }
 }
 
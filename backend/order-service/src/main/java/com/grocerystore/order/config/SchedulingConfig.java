@@ -0,0 +1,44 @@
+package com.grocerystore.order.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Background jobs such as the scheduled-order executor.
+ * Kept out of the application class so sliced tests don't start them.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    
+    public static final String KEEP_ALIVE_SCHEDULER = "keepAliveScheduler";
+    
+    /**
+     * The scheduler every job uses unless it names another, set up from
+     * spring.task.scheduling as before. Declared here because a second scheduler
+     * bean switches off Boot's own.
+     */
+    @Bean
+    @Primary
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+    
+    /**
+     * Short jobs that must run on time whatever else is running: renewing the order
+     * node lease before it expires, and the status stream heartbeats and stall checks.
+     * On the default scheduler they would wait behind the scheduled-order sweep or
+     * partition maintenance, which can take minutes.
+     */
+    @Bean(KEEP_ALIVE_SCHEDULER)
+    public ThreadPoolTaskScheduler keepAliveScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("keep-alive-");
+        return scheduler;
+    }
+}
@@ -0,0 +1,51 @@
+package com.grocerystore.order.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking client for catalog lookups that fan out one request per product.
+ * Connections are pooled and kept alive, and every phase of a call is bounded:
+ * connect, waiting for a pooled connection, and waiting for the response.
+ */
+@Configuration
+public class WebClientConfig {
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider catalogConnectionProvider(
+            @Value("${catalog.client.reactive.max-connections:64}") int maxConnections,
+            @Value("${catalog.client.pool-acquire-timeout-ms:500}") long poolAcquireTimeoutMs,
+            @Value("${catalog.client.keep-alive-seconds:30}") long keepAliveSeconds) {
+        return ConnectionProvider.builder("catalog-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(keepAliveSeconds))
+                .evictInBackground(Duration.ofSeconds(keepAliveSeconds))
+                .metrics(true)
+                .build();
+    }
+    
+    @Bean
+    public WebClient catalogWebClient(
+            WebClient.Builder builder,
+            ConnectionProvider catalogConnectionProvider,
+            @Value("${catalog.service.url}") String catalogServiceUrl,
+            @Value("${catalog.client.connect-timeout-ms:1000}") int connectTimeoutMs,
+            @Value("${catalog.client.response-timeout-ms:3000}") long responseTimeoutMs) {
+        HttpClient httpClient = HttpClient.create(catalogConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        return builder
+                .baseUrl(catalogServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -6,22 +6,34 @@ import com.grocerystore.order.dto.CreateScheduledOrderRequest;
 import com.grocerystore.order.dto.FrequentlyOrderedProductDto;
 import com.grocerystore.order.dto.OrderDto;
 import com.grocerystore.order.dto.OrderItemDto;
+import com.grocerystore.order.dto.PosOrderBatchRequest;
+import com.grocerystore.order.dto.PosOrderBatchResponse;
 import com.grocerystore.order.dto.SalesReportDto;
 import com.grocerystore.order.dto.ScheduledOrderDto;
 import com.grocerystore.order.dto.UserCarbonSummaryDto;
 import com.grocerystore.order.model.Order;
 import com.grocerystore.order.model.ScheduledOrder;
 import com.grocerystore.order.service.CarbonFootprintService;
+import com.grocerystore.order.service.EmissionFactorCache;
+import com.grocerystore.order.service.OrderIdempotencyService;
 import com.grocerystore.order.service.OrderService;
+import com.grocerystore.order.service.OrderStatusStreamService;
+import com.grocerystore.order.service.PosOrderBatchService;
+import com.grocerystore.order.service.SalesRollupService;
+import com.grocerystore.order.service.UserProductStatsService;
 import com.grocerystore.order.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -33,13 +45,63 @@ public class OrderController {
     
     private final OrderService orderService;
     private final CarbonFootprintService carbonFootprintService;
+    private final EmissionFactorCache emissionFactorCache;
+    private final SalesRollupService salesRollupService;
+    private final UserProductStatsService userProductStatsService;
+    private final OrderStatusStreamService orderStatusStreamService;
+    private final PosOrderBatchService posOrderBatchService;
+    private final OrderIdempotencyService orderIdempotencyService;
     private final JwtUtil jwtUtil;
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+    
+    /**
+     * With an Idempotency-Key header, retries of the same request return the order
+     * the first one created (marked with Idempotent-Replayed: true) instead of a new one.
+     * Keys belong to the caller's token, so one caller can't replay another's.
+     */
     @PostMapping
-    public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CreateOrderRequest request,
+            HttpServletRequest httpRequest) {
+        if (idempotencyKey == null) {
+            try {
+                orderService.preloadCatalogData(request.getItems());
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(orderService.createOrder(request));
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(java.util.Map.of("message", "Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+        }
+        Long callerId = null;
+        String token = jwtUtil.resolveToken(httpRequest);
+        if (token != null) {
+            try {
+                callerId = jwtUtil.extractUserId(token);
+            } catch (Exception e) {
+                // Fall through to 401; the JWT filter has already logged why
+            }
+        }
+        if (callerId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Idempotency-Key needs a token with a user id"));
+        }
         try {
+            OrderIdempotencyService.Result result = orderIdempotencyService.createOrder(callerId, idempotencyKey, request);
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(orderService.createOrder(request));
+                    .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                    .body(result.order());
+        } catch (OrderIdempotencyService.IdempotencyConflictException e) {
+            HttpStatus status = e.getReason() == OrderIdempotencyService.IdempotencyConflictException.Reason.KEY_REUSED
+                    ? HttpStatus.UNPROCESSABLE_ENTITY
+                    : HttpStatus.CONFLICT;
+            return ResponseEntity.status(status).body(java.util.Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -68,6 +130,14 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByUserId(userId));
     }
     
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<Page<OrderDto>> getOrdersByUserIdPage(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(orderService.getOrdersByUserId(userId, page, size));
+    }
+    
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<OrderDto> updateOrderStatus(
@@ -89,6 +159,7 @@ public class OrderController {
                 // For POS orders, shipping address is optional
                 request.setShippingAddress(null);
             }
+            orderService.preloadCatalogData(request.getItems());
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(orderService.createOrder(request));
         } catch (RuntimeException e) {
@@ -96,6 +167,23 @@ public class OrderController {
         }
     }
     
+    /**
+     * Completed sales from a POS lane, e.g. synced after an outage. Resent sales
+     * (same idempotency key) come back as DUPLICATE with their original order.
+     */
+    @PostMapping("/pos/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> createPosOrderBatch(@Valid @RequestBody PosOrderBatchRequest request) {
+        try {
+            PosOrderBatchResponse response = posOrderBatchService.ingest(request);
+            return ResponseEntity.status(response.getCreated() > 0 ? HttpStatus.CREATED : HttpStatus.OK).body(response);
+        } catch (RuntimeException e) {
+            java.util.Map<String, String> error = new java.util.HashMap<>();
+            error.put("message", e.getMessage() != null ? e.getMessage() : "Failed to ingest POS sales");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
     @GetMapping("/sales/daily")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<SalesReportDto> getDailySales(
@@ -114,6 +202,122 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getMonthlySales(year, month));
     }
     
+    @GetMapping("/sales/range")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SalesReportDto>> getSalesForRange(
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate,
+            @RequestParam(defaultValue = "DAY") SalesRollupService.ReportBucket groupBy) {
+        try {
+            return ResponseEntity.ok(salesRollupService.getReports(startDate, endDate, groupBy));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/sales/weekly")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SalesReportDto>> getWeeklySales(
+            @RequestParam(required = false) LocalDate date) {
+        if (date == null) {
+            date = LocalDate.now();
+        }
+        // Monday to Sunday of the week containing the date, one report per day
+        LocalDate weekStart = date.with(DayOfWeek.MONDAY);
+        return ResponseEntity.ok(salesRollupService.getReports(
+                weekStart, weekStart.plusDays(6), SalesRollupService.ReportBucket.DAY));
+    }
+    
+    @GetMapping("/sales/yearly")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SalesReportDto>> getYearlySales(@RequestParam int year) {
+        // One report per month
+        LocalDate yearStart = LocalDate.of(year, 1, 1);
+        return ResponseEntity.ok(salesRollupService.getReports(
+                yearStart, yearStart.plusYears(1).minusDays(1), SalesRollupService.ReportBucket.MONTH));
+    }
+    
+    @PostMapping("/sales/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildSalesRollup(
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate) {
+        try {
+            int rows = salesRollupService.rebuild(startDate, endDate);
+            return ResponseEntity.ok(java.util.Map.of("rows", rows));
+        } catch (RuntimeException e) {
+            java.util.Map<String, String> error = new java.util.HashMap<>();
+            error.put("message", e.getMessage() != null ? e.getMessage() : "Failed to rebuild sales rollup");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+    
+    @PostMapping("/admin/buy-again/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfillBuyAgain() {
+        if (!userProductStatsService.startBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("message", "Backfill already running"));
+        }
+        return ResponseEntity.accepted().build();
+    }
+    
+    /**
+     * Apply edits to the emission_factors table now instead of at the next periodic refresh.
+     */
+    @PostMapping("/admin/emission-factors/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reloadEmissionFactors() {
+        emissionFactorCache.refresh();
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Short-lived token for opening the status streams from a browser EventSource,
+     * which can't send the Authorization header: pass it as ?access_token=.
+     */
+    @PostMapping("/stream/token")
+    public ResponseEntity<?> createStreamToken(HttpServletRequest httpRequest) {
+        String token = jwtUtil.resolveToken(httpRequest);
+        if (token == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(java.util.Map.of(
+                "token", jwtUtil.generateStreamToken(token),
+                "expiresInMs", jwtUtil.getStreamTokenExpiration()));
+    }
+    
+    /**
+     * Live status changes of the caller's own orders (text/event-stream, event name "order-status").
+     * Takes the Authorization header or a stream token in ?access_token=.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMyOrderStatus(HttpServletRequest httpRequest) {
+        String token = jwtUtil.resolveToken(httpRequest);
+        Long userId = null;
+        if (token != null) {
+            try {
+                userId = jwtUtil.extractUserId(token);
+            } catch (Exception e) {
+                // Fall through to 401; the JWT filter has already logged why
+            }
+        }
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(orderStatusStreamService.subscribeUser(userId));
+    }
+    
+    /**
+     * Live status changes of every order, including new ones, for the admin order screen.
+     * Takes the same stream token as {@code /stream}.
+     */
+    @GetMapping(value = "/admin/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter streamAllOrderStatus() {
+        return orderStatusStreamService.subscribeStore();
+    }
+    
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<OrderDto>> getAllOrders(
@@ -121,6 +325,15 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(isPosOrder));
     }
     
+    @GetMapping("/admin/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<OrderDto>> getAllOrdersPage(
+            @RequestParam(required = false) Boolean isPosOrder,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(orderService.getAllOrders(isPosOrder, page, size));
+    }
+    
     /**
      * Get frequently ordered products for a user (for "Buy Again" feature)
      */
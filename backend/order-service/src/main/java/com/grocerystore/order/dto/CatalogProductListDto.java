@@ -0,0 +1,21 @@
+package com.grocerystore.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * catalog-service's list of every active product, in stock or not, as of catalog
+ * change {@code seq} (0 if it couldn't tie the list to a seq).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CatalogProductListDto {
+    private Long seq;
+    private List<CatalogProductDto> products;
+}
@@ -0,0 +1,30 @@
+package com.grocerystore.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published on order.confirmed when an order becomes CONFIRMED; catalog-service
+ * decrements stock from it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderConfirmedEvent {
+    private Long orderId;
+    private String orderNumber;
+    private List<Line> items;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private Integer quantity;
+    }
+}
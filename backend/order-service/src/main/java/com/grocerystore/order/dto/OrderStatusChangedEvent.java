@@ -0,0 +1,27 @@
+package com.grocerystore.order.dto;
+
+import com.grocerystore.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published on order.status.changed when an order is created or changes status;
+ * every order-service instance relays it to its SSE subscribers. previousStatus
+ * is null for a new order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusChangedEvent {
+    private Long orderId;
+    private String orderNumber;
+    private Long userId;
+    private Boolean isPosOrder;
+    private Order.OrderStatus previousStatus;
+    private Order.OrderStatus status;
+    // Epoch milliseconds
+    private Long changedAt;
+}
@@ -0,0 +1,16 @@
+package com.grocerystore.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published by payment-service on payment.succeeded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSucceededEvent {
+    private Long paymentId;
+    private String orderNumber;
+}
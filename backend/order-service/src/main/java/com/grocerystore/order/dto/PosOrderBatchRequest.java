@@ -0,0 +1,43 @@
+package com.grocerystore.order.dto;
+
+import com.grocerystore.order.model.Order.PaymentMethod;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Completed sales from one POS lane, sent together, e.g. when a lane syncs
+ * the sales it queued while offline.
+ */
+@Data
+public class PosOrderBatchRequest {
+    @NotEmpty(message = "Sales are required")
+    @Valid
+    private List<Sale> sales;
+    
+    @Data
+    public static class Sale {
+        // Generated by the lane once per sale and reused on every resend
+        @NotBlank(message = "Idempotency key is required")
+        @Size(max = 100, message = "Idempotency key must be at most 100 characters")
+        private String idempotencyKey;
+        
+        @NotNull(message = "User ID is required")
+        private Long userId;
+        
+        @NotEmpty(message = "Order items are required")
+        @Valid
+        private List<OrderItemDto> items;
+        
+        private PaymentMethod paymentMethod;
+        
+        // When the sale was rung up at the lane; defaults to the time of ingest
+        private LocalDateTime soldAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.grocerystore.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of each sale in a {@link PosOrderBatchRequest}, in request order.
+ * A lane can drop every sale that came back CREATED or DUPLICATE from its queue.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PosOrderBatchResponse {
+    private int created;
+    private int duplicates;
+    private int rejected;
+    private List<Result> results;
+    
+    public enum Status {
+        CREATED, DUPLICATE, REJECTED
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Result {
+        private String idempotencyKey;
+        private Status status;
+        private Long orderId;
+        private String orderNumber;
+        private BigDecimal totalAmount;
+        private String message;
+    }
+}
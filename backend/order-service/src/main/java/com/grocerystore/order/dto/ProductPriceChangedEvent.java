@@ -0,0 +1,31 @@
+package com.grocerystore.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Published by catalog-service on product.changed: current price and availability of products
+ * written up to catalog change {@code seq}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPriceChangedEvent {
+    private Long seq;
+    private List<Line> products;
+    private List<Long> deletedProductIds;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private BigDecimal price;
+        private Boolean active;
+        private Integer stockQuantity;
+    }
+}
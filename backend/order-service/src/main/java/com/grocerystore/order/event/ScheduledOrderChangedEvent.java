@@ -0,0 +1,8 @@
+package com.grocerystore.order.event;
+
+/**
+ * Published whenever a scheduled order is created, edited, paused, resumed,
+ * cancelled, deleted or executed, so the in-memory trigger can re-arm it.
+ */
+public record ScheduledOrderChangedEvent(Long scheduledOrderId) {
+}
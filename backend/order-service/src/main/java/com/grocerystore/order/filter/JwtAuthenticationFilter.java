@@ -27,16 +27,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
-        final String authHeader = request.getHeader("Authorization");
+        final String token = jwtUtil.resolveToken(request);
         
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            logger.debug("No Authorization header found for request: " + request.getRequestURI());
+        if (token == null) {
+            logger.debug("No usable token found for request: " + request.getRequestURI());
             filterChain.doFilter(request, response);
             return;
         }
         
         try {
-            final String token = authHeader.substring(7);
             logger.debug("Extracting token for request: " + request.getRequestURI());
             
             final String username = jwtUtil.extractUsername(token);
@@ -0,0 +1,48 @@
+package com.grocerystore.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Emission factor of a catalog category, or of a single product when productId is set.
+ */
+@Entity
+@Table(name = "emission_factors")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmissionFactor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "product_id", unique = true)
+    private Long productId;
+    
+    @Column(name = "category_name", unique = true)
+    private String categoryName;
+    
+    // kg CO2e per kg of product
+    @Column(name = "kg_co2e_per_kg", nullable = false, precision = 10, scale = 4)
+    private BigDecimal kgCo2ePerKg;
+    
+    // Weight of one unit, for items sold by quantity
+    @Column(name = "unit_weight_kg", precision = 10, scale = 4)
+    private BigDecimal unitWeightKg;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "order_items")
@@ -40,5 +41,16 @@ public class OrderItem {
     
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal subtotal;
+    
+    // Copy of the order's createdAt: order_items is partitioned on it, month for month with orders
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime orderCreatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (orderCreatedAt == null) {
+            orderCreatedAt = order.getCreatedAt();
+        }
+    }
 }
 
@@ -0,0 +1,27 @@
+package com.grocerystore.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "order_node_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderNodeLease {
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+    
+    @Column(name = "owner")
+    private String owner;
+    
+    @Column(name = "leased_until", nullable = false)
+    private LocalDateTime leasedUntil;
+}
@@ -0,0 +1,27 @@
+package com.grocerystore.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "processed_payments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedPayment {
+    @Id
+    @Column(name = "payment_id")
+    private Long paymentId;
+    
+    @Column(name = "order_number", nullable = false)
+    private String orderNumber;
+    
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
@@ -82,6 +82,18 @@ public class ScheduledOrder {
     @Column(columnDefinition = "TEXT")
     private String notes;
     
+    // Execution lease: which worker claimed this row and until when
+    @Column(name = "claimed_by")
+    private String claimedBy;
+    
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+    
+    // Consecutive failed attempts at the current occurrence
+    @Column(name = "failed_attempts", nullable = false)
+    @Builder.Default
+    private Integer failedAttempts = 0;
+    
     @OneToMany(mappedBy = "scheduledOrder", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ScheduledOrderItem> items;
     
@@ -114,7 +126,9 @@ public class ScheduledOrder {
     }
     
     public enum ScheduledOrderStatus {
-        PENDING, ACTIVE, COMPLETED, CANCELLED, PAUSED
+        PENDING, ACTIVE, COMPLETED, CANCELLED, PAUSED,
+        // Gave up after repeated failed attempts; resuming retries it
+        FAILED
     }
 }
 
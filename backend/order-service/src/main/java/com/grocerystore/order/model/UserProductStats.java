@@ -0,0 +1,58 @@
+package com.grocerystore.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_product_stats")
+@IdClass(UserProductStats.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserProductStats {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(name = "product_name", nullable = false)
+    private String productName;
+    
+    @Column(name = "times_ordered", nullable = false)
+    private Integer timesOrdered;
+    
+    @Column(name = "total_quantity", nullable = false)
+    private Long totalQuantity;
+    
+    @Column(name = "total_price", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalPrice;
+    
+    @Column(name = "total_weight", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalWeight;
+    
+    // Number of order lines that had a weight, for the average weight
+    @Column(name = "weighed_count", nullable = false)
+    private Integer weighedCount;
+    
+    @Column(name = "last_ordered_at", nullable = false)
+    private LocalDateTime lastOrderedAt;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Long productId;
+    }
+}
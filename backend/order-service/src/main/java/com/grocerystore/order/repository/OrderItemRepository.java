@@ -0,0 +1,23 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    
+    // Items for a whole page of orders in one statement, instead of one lazy load per order.
+    // The creation-time bounds let Postgres skip the order_items partitions outside the page.
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id IN :orderIds " +
+           "AND oi.orderCreatedAt BETWEEN :from AND :to ORDER BY oi.id")
+    List<OrderItem> findByOrderIdIn(@Param("orderIds") Collection<Long> orderIds,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+}
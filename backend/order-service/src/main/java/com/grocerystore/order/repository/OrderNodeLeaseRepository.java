@@ -0,0 +1,29 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.OrderNodeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface OrderNodeLeaseRepository extends JpaRepository<OrderNodeLease, Integer> {
+    
+    // SKIP LOCKED keeps instances starting together off each other's candidate
+    @Query(value = "SELECT * FROM order_node_leases " +
+                   "WHERE leased_until < :now " +
+                   "ORDER BY node_id " +
+                   "LIMIT 1 " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<OrderNodeLease> lockExpired(@Param("now") LocalDateTime now);
+    
+    // Matches nothing once another instance has taken the node id over
+    @Modifying
+    @Query("UPDATE OrderNodeLease l SET l.leasedUntil = :leasedUntil WHERE l.nodeId = :nodeId AND l.owner = :owner")
+    int renew(@Param("nodeId") Integer nodeId, @Param("owner") String owner, @Param("leasedUntil") LocalDateTime leasedUntil);
+}
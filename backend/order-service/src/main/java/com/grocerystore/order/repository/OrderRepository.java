@@ -1,7 +1,11 @@
 package com.grocerystore.order.repository;
 
 import com.grocerystore.order.model.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -12,8 +16,23 @@ import java.util.Optional;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
     Optional<Order> findByOrderNumber(String orderNumber);
+    // Order numbers carry their creation time, so lookups can be confined to one or two monthly partitions
+    Optional<Order> findByOrderNumberAndCreatedAtBetween(String orderNumber, LocalDateTime from, LocalDateTime to);
+    // order_numbers records when each order was created, for numbers that don't carry it
+    // (older formats) or carry a different time (backdated POS sales)
+    @Query(value = "SELECT o.* FROM order_numbers n " +
+                   "JOIN orders o ON o.order_number = n.order_number AND o.created_at = n.order_created_at " +
+                   "WHERE n.order_number = :orderNumber",
+           nativeQuery = true)
+    Optional<Order> findByOrderNumberThroughKey(@Param("orderNumber") String orderNumber);
     List<Order> findByCreatedAtBetweenAndStatusIn(LocalDateTime start, LocalDateTime end, List<Order.OrderStatus> statuses);
     List<Order> findAllByOrderByCreatedAtDesc();
     List<Order> findByIsPosOrderOrderByCreatedAtDesc(Boolean isPosOrder);
+    Page<Order> findByUserId(Long userId, Pageable pageable);
+    Page<Order> findByIsPosOrder(Boolean isPosOrder, Pageable pageable);
+    
+    @Query(value = "SELECT DISTINCT user_id FROM orders WHERE user_id > :afterUserId ORDER BY user_id LIMIT :limit",
+           nativeQuery = true)
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, @Param("limit") int limit);
 }
 
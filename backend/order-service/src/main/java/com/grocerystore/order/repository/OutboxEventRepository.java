@@ -0,0 +1,50 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * Lock the next publishable events. Only the oldest pending event of each
+     * aggregate qualifies, so events for one order are published in order even
+     * with several relays running; SKIP LOCKED keeps relays off each other's rows.
+     */
+    @Query(value = "SELECT * FROM outbox_events e " +
+                   "WHERE e.published_at IS NULL AND e.next_attempt_at <= :now " +
+                   "AND NOT EXISTS (SELECT 1 FROM outbox_events p " +
+                   "  WHERE p.aggregate_type = e.aggregate_type AND p.aggregate_id = e.aggregate_id " +
+                   "  AND p.published_at IS NULL AND p.id < e.id) " +
+                   "ORDER BY e.id " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    // Claimed rows are leased by pushing their next attempt out; a relay that dies mid-batch
+    // leaves them to be picked up again once the lease runs out
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :leasedUntil WHERE e.id IN :ids")
+    int lease(@Param("ids") List<Long> ids, @Param("leasedUntil") LocalDateTime leasedUntil);
+    
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids AND e.publishedAt IS NULL")
+    int markPublished(@Param("ids") List<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+    
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lastError = :error WHERE e.id = :id AND e.publishedAt IS NULL")
+    int markFailed(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
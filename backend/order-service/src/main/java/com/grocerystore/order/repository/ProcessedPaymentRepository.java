@@ -0,0 +1,21 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.ProcessedPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProcessedPaymentRepository extends JpaRepository<ProcessedPayment, Long> {
+    
+    /**
+     * @return 1 if this payment is new, 0 if it was already processed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO processed_payments (payment_id, order_number, processed_at) " +
+                   "VALUES (:paymentId, :orderNumber, CURRENT_TIMESTAMP) ON CONFLICT (payment_id) DO NOTHING",
+           nativeQuery = true)
+    int markProcessed(@Param("paymentId") Long paymentId, @Param("orderNumber") String orderNumber);
+}
@@ -0,0 +1,75 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollup.Key> {
+    
+    // Upsert so concurrent orders for the same bucket add up instead of racing on insert
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup (sales_date, channel, payment_method, order_count, total_amount) " +
+                   "VALUES (:salesDate, :channel, :paymentMethod, :orderCount, :amount) " +
+                   "ON CONFLICT (sales_date, channel, payment_method) DO UPDATE SET " +
+                   "order_count = sales_daily_rollup.order_count + EXCLUDED.order_count, " +
+                   "total_amount = sales_daily_rollup.total_amount + EXCLUDED.total_amount",
+           nativeQuery = true)
+    void add(@Param("salesDate") LocalDate salesDate,
+             @Param("channel") String channel,
+             @Param("paymentMethod") String paymentMethod,
+             @Param("orderCount") long orderCount,
+             @Param("amount") BigDecimal amount);
+    
+    /**
+     * All report breakdowns for [startDate, endDate] in one pass, grouped into
+     * buckets of {@code unit} ('day', 'week' or 'month'). Each row is
+     * bucket start date, order count, revenue, cash, card, QR and online sales.
+     */
+    @Query(value = "SELECT CAST(date_trunc(:unit, CAST(sales_date AS TIMESTAMP)) AS DATE) AS bucket, " +
+                   "SUM(order_count), " +
+                   "COALESCE(SUM(total_amount), 0), " +
+                   "COALESCE(SUM(total_amount) FILTER (WHERE channel = 'POS' AND payment_method = 'CASH'), 0), " +
+                   "COALESCE(SUM(total_amount) FILTER (WHERE channel = 'POS' AND payment_method IN ('CREDIT_CARD', 'DEBIT_CARD')), 0), " +
+                   "COALESCE(SUM(total_amount) FILTER (WHERE channel = 'POS' AND payment_method = 'QR_CODE'), 0), " +
+                   "COALESCE(SUM(total_amount) FILTER (WHERE channel = 'ONLINE'), 0) " +
+                   "FROM sales_daily_rollup " +
+                   "WHERE sales_date BETWEEN :startDate AND :endDate " +
+                   "GROUP BY 1 HAVING SUM(order_count) > 0 ORDER BY 1",
+           nativeQuery = true)
+    List<Object[]> aggregate(@Param("startDate") LocalDate startDate,
+                             @Param("endDate") LocalDate endDate,
+                             @Param("unit") String unit);
+    
+    // Waits for open transactions that have already written the rollup and holds off new
+    // writers until commit; plain reads of orders and reports are not blocked
+    @Modifying
+    @Query(value = "LOCK TABLE sales_daily_rollup IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockAgainstWriters();
+    
+    @Modifying
+    @Query("DELETE FROM SalesDailyRollup r WHERE r.salesDate BETWEEN :startDate AND :endDate")
+    void deleteBySalesDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    // Recompute a date range straight from orders; the range scan uses idx_orders_status_created_at
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup (sales_date, channel, payment_method, order_count, total_amount) " +
+                   "SELECT CAST(created_at AS DATE), " +
+                   "CASE WHEN is_pos_order THEN 'POS' ELSE 'ONLINE' END, " +
+                   "COALESCE(payment_method, 'UNKNOWN'), COUNT(*), SUM(total_amount) " +
+                   "FROM orders " +
+                   "WHERE status IN ('CONFIRMED', 'DELIVERED') AND created_at >= :start AND created_at < :end " +
+                   "GROUP BY 1, 2, 3",
+           nativeQuery = true)
+    int insertFromOrders(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    List<SalesDailyRollup> findBySalesDateBetweenOrderBySalesDateAsc(LocalDate startDate, LocalDate endDate);
+}
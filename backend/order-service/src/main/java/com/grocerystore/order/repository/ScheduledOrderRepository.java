@@ -1,12 +1,16 @@
 package com.grocerystore.order.repository;
 
 import com.grocerystore.order.model.ScheduledOrder;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +33,33 @@ public interface ScheduledOrderRepository extends JpaRepository<ScheduledOrder,
             @Param("endDate") LocalDate endDate
     );
     
+    /**
+     * Live orders due in {@code (from, until]}, or backing off until a time in it.
+     * A missing time of day means midnight.
+     */
+    default List<ScheduledOrder> findArmableBetween(LocalDateTime from, LocalDateTime until) {
+        return findArmableBetween(from.toLocalDate(), from.toLocalTime(), until.toLocalDate(), until.toLocalTime(),
+                LocalTime.MIDNIGHT, from, until);
+    }
+    
+    @Query("SELECT so FROM ScheduledOrder so WHERE so.status IN ('PENDING', 'ACTIVE') AND (" +
+           "((so.nextExecutionDate > :fromDate OR (so.nextExecutionDate = :fromDate " +
+           "AND COALESCE(so.scheduledTime, :midnight) > :fromTime)) " +
+           "AND (so.nextExecutionDate < :untilDate OR (so.nextExecutionDate = :untilDate " +
+           "AND COALESCE(so.scheduledTime, :midnight) <= :untilTime))) " +
+           "OR (so.claimedUntil > :from AND so.claimedUntil <= :until))")
+    List<ScheduledOrder> findArmableBetween(@Param("fromDate") LocalDate fromDate,
+                                            @Param("fromTime") LocalTime fromTime,
+                                            @Param("untilDate") LocalDate untilDate,
+                                            @Param("untilTime") LocalTime untilTime,
+                                            @Param("midnight") LocalTime midnight,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("until") LocalDateTime until);
+    
     Optional<ScheduledOrder> findByIdAndUserId(Long id, Long userId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT so FROM ScheduledOrder so WHERE so.id = :id")
+    Optional<ScheduledOrder> findByIdForUpdate(@Param("id") Long id);
 }
 
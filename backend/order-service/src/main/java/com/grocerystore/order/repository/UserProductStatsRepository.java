@@ -0,0 +1,81 @@
+package com.grocerystore.order.repository;
+
+import com.grocerystore.order.model.UserProductStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserProductStatsRepository extends JpaRepository<UserProductStats, UserProductStats.Key> {
+    
+    List<UserProductStats> findTop10ByUserIdAndTimesOrderedGreaterThanEqualOrderByTimesOrderedDescLastOrderedAtDesc(
+            Long userId, Integer minTimesOrdered);
+    
+    @Modifying
+    @Query(value = "INSERT INTO user_product_stats (user_id, product_id, product_name, times_ordered, total_quantity, " +
+                   "total_price, total_weight, weighed_count, last_ordered_at) " +
+                   "VALUES (:userId, :productId, :productName, 1, :quantity, :price, :weight, :weighed, :orderedAt) " +
+                   "ON CONFLICT (user_id, product_id) DO UPDATE SET " +
+                   "product_name = EXCLUDED.product_name, " +
+                   "times_ordered = user_product_stats.times_ordered + 1, " +
+                   "total_quantity = user_product_stats.total_quantity + EXCLUDED.total_quantity, " +
+                   "total_price = user_product_stats.total_price + EXCLUDED.total_price, " +
+                   "total_weight = user_product_stats.total_weight + EXCLUDED.total_weight, " +
+                   "weighed_count = user_product_stats.weighed_count + EXCLUDED.weighed_count, " +
+                   "last_ordered_at = GREATEST(user_product_stats.last_ordered_at, EXCLUDED.last_ordered_at)",
+           nativeQuery = true)
+    void addOrderLine(@Param("userId") Long userId,
+                      @Param("productId") Long productId,
+                      @Param("productName") String productName,
+                      @Param("quantity") long quantity,
+                      @Param("price") BigDecimal price,
+                      @Param("weight") BigDecimal weight,
+                      @Param("weighed") int weighed,
+                      @Param("orderedAt") LocalDateTime orderedAt);
+    
+    // Take back a line of an order that no longer counts; the last-ordered time is left as it was
+    @Modifying
+    @Query(value = "UPDATE user_product_stats SET " +
+                   "times_ordered = times_ordered - 1, " +
+                   "total_quantity = total_quantity - :quantity, " +
+                   "total_price = total_price - :price, " +
+                   "total_weight = total_weight - :weight, " +
+                   "weighed_count = weighed_count - :weighed " +
+                   "WHERE user_id = :userId AND product_id = :productId",
+           nativeQuery = true)
+    void removeOrderLine(@Param("userId") Long userId,
+                         @Param("productId") Long productId,
+                         @Param("quantity") long quantity,
+                         @Param("price") BigDecimal price,
+                         @Param("weight") BigDecimal weight,
+                         @Param("weighed") int weighed);
+    
+    @Modifying
+    @Query("DELETE FROM UserProductStats s WHERE s.userId = :userId AND s.timesOrdered <= 0")
+    void deleteEmptyByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM UserProductStats s WHERE s.userId IN :userIds")
+    void deleteByUserIdIn(@Param("userIds") List<Long> userIds);
+    
+    // Rebuild counters for a batch of users from their online orders in the counted statuses
+    @Modifying
+    @Query(value = "INSERT INTO user_product_stats (user_id, product_id, product_name, times_ordered, total_quantity, " +
+                   "total_price, total_weight, weighed_count, last_ordered_at) " +
+                   "SELECT o.user_id, oi.product_id, " +
+                   "(ARRAY_AGG(oi.product_name ORDER BY o.created_at DESC))[1], " +
+                   "COUNT(*), SUM(oi.quantity), SUM(oi.price), COALESCE(SUM(oi.weight), 0), COUNT(oi.weight), " +
+                   "MAX(o.created_at) " +
+                   "FROM orders o JOIN order_items oi ON oi.order_id = o.id AND oi.order_created_at = o.created_at " +
+                   "WHERE o.user_id IN (:userIds) AND (o.is_pos_order IS NULL OR o.is_pos_order = false) " +
+                   "AND o.status IN (:statuses) " +
+                   "GROUP BY o.user_id, oi.product_id",
+           nativeQuery = true)
+    int insertFromOrderHistory(@Param("userIds") List<Long> userIds, @Param("statuses") List<String> statuses);
+}
@@ -26,24 +26,10 @@ public class CarbonFootprintService {
     
     private final OrderRepository orderRepository;
     private final CarbonFootprintHistoryRepository carbonFootprintHistoryRepository;
+    private final EmissionFactorCache emissionFactorCache;
     
-    // Carbon footprint factors (kg CO2 per kg of product)
-    private static final Map<String, BigDecimal> CATEGORY_EMISSION_FACTORS = new HashMap<>();
-    
-    static {
-        // Based on average CO2 emissions per kg of food product
-        CATEGORY_EMISSION_FACTORS.put("Meat", new BigDecimal("27.0")); // Highest
-        CATEGORY_EMISSION_FACTORS.put("Dairy", new BigDecimal("3.2"));
-        CATEGORY_EMISSION_FACTORS.put("Fruits", new BigDecimal("0.4"));
-        CATEGORY_EMISSION_FACTORS.put("Vegetables", new BigDecimal("0.4"));
-        CATEGORY_EMISSION_FACTORS.put("Fruits & Vegetables", new BigDecimal("0.4"));
-        CATEGORY_EMISSION_FACTORS.put("Grains", new BigDecimal("0.5"));
-        CATEGORY_EMISSION_FACTORS.put("Beverages", new BigDecimal("0.3"));
-        CATEGORY_EMISSION_FACTORS.put("Snacks", new BigDecimal("2.0"));
-        CATEGORY_EMISSION_FACTORS.put("Frozen", new BigDecimal("1.5"));
-        CATEGORY_EMISSION_FACTORS.put("Canned", new BigDecimal("1.2"));
-        CATEGORY_EMISSION_FACTORS.put("Default", new BigDecimal("1.0")); // Default for unknown categories
-    }
+    // Order item weights are recorded in pounds
+    private static final BigDecimal KG_PER_POUND = new BigDecimal("0.45359237");
     
     // Delivery emission factor: kg CO2 per km
     private static final BigDecimal DELIVERY_EMISSION_FACTOR = new BigDecimal("0.2"); // Average delivery vehicle
@@ -57,9 +43,6 @@ public class CarbonFootprintService {
         PACKAGING_EMISSION_FACTORS.put("MINIMAL", new BigDecimal("0.1"));
     }
     
-    // Average weight per item (kg) - used when weight is not available
-    private static final BigDecimal DEFAULT_ITEM_WEIGHT = new BigDecimal("0.5");
-    
     /**
      * Calculate carbon footprint for an order
      */
@@ -72,21 +55,24 @@ public class CarbonFootprintService {
         
         // Calculate product footprint
         if (order.getItems() != null) {
+            Set<Long> productIds = order.getItems().stream()
+                .map(OrderItem::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+            Map<Long, EmissionFactorCache.ProductFactor> factors = emissionFactorCache.factorsFor(productIds);
             for (OrderItem item : order.getItems()) {
-                // Get category from product (we'll need to fetch this from catalog service)
-                // For now, we'll use a default approach
-                String category = getCategoryFromProductName(item.getProductName());
-                BigDecimal emissionFactor = CATEGORY_EMISSION_FACTORS.getOrDefault(
-                    category, 
-                    CATEGORY_EMISSION_FACTORS.get("Default")
+                EmissionFactorCache.ProductFactor factor = factors.getOrDefault(
+                    item.getProductId(), 
+                    EmissionFactorCache.DEFAULT_FACTOR
                 );
+                String category = factor.category();
                 
-                // Calculate weight: use weight if available, otherwise estimate from quantity
+                // Calculate weight: items sold by weight carry it in pounds, others use the product's unit weight
                 BigDecimal weight = item.getWeight() != null 
-                    ? item.getWeight() 
-                    : DEFAULT_ITEM_WEIGHT.multiply(new BigDecimal(item.getQuantity()));
+                    ? item.getWeight().multiply(KG_PER_POUND) 
+                    : factor.unitWeightKg().multiply(new BigDecimal(item.getQuantity()));
                 
-                BigDecimal itemFootprint = emissionFactor.multiply(weight);
+                BigDecimal itemFootprint = factor.kgCo2ePerKg().multiply(weight);
                 productFootprint = productFootprint.add(itemFootprint);
                 
                 // Track by category
@@ -140,58 +126,36 @@ public class CarbonFootprintService {
     }
     
     /**
-     * Get category from product name (simple heuristic)
-     * In a real system, you'd fetch this from the catalog service
+     * Save carbon footprint for an order
      */
-    private String getCategoryFromProductName(String productName) {
-        String name = productName.toLowerCase();
-        
-        if (name.contains("meat") || name.contains("chicken") || name.contains("beef") || 
-            name.contains("pork") || name.contains("lamb") || name.contains("fish")) {
-            return "Meat";
-        }
-        if (name.contains("milk") || name.contains("cheese") || name.contains("yogurt") || 
-            name.contains("butter") || name.contains("cream")) {
-            return "Dairy";
-        }
-        if (name.contains("apple") || name.contains("banana") || name.contains("orange") || 
-            name.contains("grape") || name.contains("berry") || name.contains("fruit")) {
-            return "Fruits";
-        }
-        if (name.contains("vegetable") || name.contains("carrot") || name.contains("potato") || 
-            name.contains("tomato") || name.contains("onion") || name.contains("pepper")) {
-            return "Vegetables";
-        }
-        if (name.contains("rice") || name.contains("wheat") || name.contains("bread") || 
-            name.contains("flour") || name.contains("pasta")) {
-            return "Grains";
-        }
-        if (name.contains("drink") || name.contains("juice") || name.contains("soda") || 
-            name.contains("water") || name.contains("tea") || name.contains("coffee")) {
-            return "Beverages";
-        }
-        if (name.contains("frozen")) {
-            return "Frozen";
-        }
-        if (name.contains("can") || name.contains("canned")) {
-            return "Canned";
-        }
-        
-        return "Default";
+    @Transactional
+    public void saveCarbonFootprint(Order order, CarbonFootprintDto footprint) {
+        applyCarbonFootprint(order, footprint);
+        orderRepository.save(order);
+        recordHistory(order, footprint);
     }
     
     /**
-     * Save carbon footprint for an order
+     * Resolve emission factors for products the factor table doesn't know yet, e.g. before an order's transaction opens
      */
-    @Transactional
-    public void saveCarbonFootprint(Order order, CarbonFootprintDto footprint) {
-        // Update order with carbon footprint
+    public void preloadEmissionFactors(Collection<Long> productIds) {
+        emissionFactorCache.preload(productIds);
+    }
+    
+    /**
+     * Copy a calculated footprint onto the order, e.g. before it is first saved
+     */
+    public void applyCarbonFootprint(Order order, CarbonFootprintDto footprint) {
         order.setCarbonFootprintKg(footprint.getCarbonFootprintKg());
         order.setDeliveryDistanceKm(footprint.getDeliveryDistanceKm());
         order.setPackagingType(footprint.getPackagingType());
-        orderRepository.save(order);
-        
-        // Save to history
+    }
+    
+    /**
+     * Add a saved order's footprint to the user's history
+     */
+    @Transactional
+    public void recordHistory(Order order, CarbonFootprintDto footprint) {
         CarbonFootprintHistory history = CarbonFootprintHistory.builder()
             .userId(order.getUserId())
             .orderId(order.getId())
@@ -0,0 +1,193 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.CatalogProductDto;
+import com.grocerystore.order.model.EmissionFactor;
+import com.grocerystore.order.repository.EmissionFactorRepository;
+import com.grocerystore.order.util.LongObjectMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-product emission factors, precomputed for every catalog product.
+ *
+ * Each refresh reads the {@code emission_factors} table and the catalog's
+ * active products, out-of-stock ones included, resolves every product to its factor (product row, else its
+ * catalog category's row, else the default) and swaps in a new table keyed by
+ * product id. A footprint calculation is then one lookup per item.
+ *
+ * Refreshes run on startup, every {@code carbon.emission-factors.refresh-interval-ms}
+ * and on demand after the factor table is edited. If the catalog can't be reached,
+ * the products' last known categories are re-resolved against the new factors.
+ *
+ * Lookups never call catalog-service, since they run inside order transactions.
+ * Products that aren't in the table yet (added since the last refresh) get the
+ * default unless {@link #preload} resolved them through the catalog beforehand;
+ * the next refresh picks them up either way.
+ */
+@Slf4j
+@Service
+public class EmissionFactorCache {
+    
+    public static final String DEFAULT_CATEGORY = "Default";
+    public static final ProductFactor DEFAULT_FACTOR =
+            new ProductFactor(DEFAULT_CATEGORY, new BigDecimal("1.0"), new BigDecimal("0.5"));
+    
+    private final EmissionFactorRepository emissionFactorRepository;
+    private final ReactiveCatalogClient catalogClient;
+    private final Duration lookupTimeout;
+    private volatile Snapshot snapshot = new Snapshot(new LongObjectMap<>(0), new Factors(Map.of(), Map.of()));
+    // Products resolved by preload() since the last refresh
+    private final Map<Long, ProductFactor> preloaded = new ConcurrentHashMap<>();
+    
+    public EmissionFactorCache(EmissionFactorRepository emissionFactorRepository,
+                               ReactiveCatalogClient catalogClient,
+                               @Value("${carbon.emission-factors.lookup-timeout-ms:3000}") long lookupTimeoutMs) {
+        this.emissionFactorRepository = emissionFactorRepository;
+        this.catalogClient = catalogClient;
+        this.lookupTimeout = Duration.ofMillis(lookupTimeoutMs);
+    }
+    
+    /**
+     * Factors for the given products; every id gets one, {@link #DEFAULT_FACTOR} at worst.
+     * Unknown products get their product row or the default, without calling the catalog.
+     */
+    public Map<Long, ProductFactor> factorsFor(Collection<Long> productIds) {
+        Snapshot current = snapshot;
+        Map<Long, ProductFactor> result = new HashMap<>();
+        for (Long productId : productIds) {
+            if (productId == null) {
+                continue;
+            }
+            ProductFactor factor = current.byProduct().get(productId);
+            if (factor == null) {
+                factor = preloaded.get(productId);
+            }
+            result.put(productId, factor != null ? factor : current.factors().resolve(productId, null));
+        }
+        return result;
+    }
+    
+    /**
+     * Resolve products the table doesn't know yet through the catalog, so a later
+     * {@link #factorsFor} finds them. Call before opening a transaction.
+     */
+    public void preload(Collection<Long> productIds) {
+        Snapshot current = snapshot;
+        List<Long> misses = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (productId != null && current.byProduct().get(productId) == null && !preloaded.containsKey(productId)) {
+                misses.add(productId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return;
+        }
+        log.debug("Emission factor miss for {} product(s), fetching categories from catalog", misses.size());
+        lookupProducts(misses).forEach((productId, product) ->
+                preloaded.put(productId, current.factors().resolve(productId, product.getCategoryName())));
+    }
+    
+    /**
+     * Rebuild the table from the current factor rows and catalog categories.
+     * Also called after the factor rows are edited, so changes apply without a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${carbon.emission-factors.refresh-interval-ms:900000}",
+               initialDelayString = "${carbon.emission-factors.refresh-interval-ms:900000}")
+    public void refresh() {
+        Map<Long, EmissionFactor> productRows = new HashMap<>();
+        Map<String, EmissionFactor> categoryRows = new HashMap<>();
+        for (EmissionFactor row : emissionFactorRepository.findAll()) {
+            if (row.getProductId() != null) {
+                productRows.put(row.getProductId(), row);
+            } else {
+                categoryRows.put(row.getCategoryName(), row);
+            }
+        }
+        Factors factors = new Factors(productRows, categoryRows);
+        
+        List<CatalogProductDto> products;
+        try {
+            products = catalogClient.getActiveProductsBlocking(lookupTimeout).getProducts();
+        } catch (RuntimeException e) {
+            log.warn("Catalog product list unavailable, re-resolving known products: {}", e.getMessage());
+            products = null;
+        }
+        LongObjectMap<ProductFactor> byProduct;
+        if (products != null) {
+            byProduct = new LongObjectMap<>(products.size());
+            for (CatalogProductDto product : products) {
+                if (product.getId() != null) {
+                    byProduct.put(product.getId(), factors.resolve(product.getId(), product.getCategoryName()));
+                }
+            }
+        } else {
+            // Keep each product's last known category, with the new factors applied
+            LongObjectMap<ProductFactor> previous = snapshot.byProduct();
+            LongObjectMap<ProductFactor> rebuilt = new LongObjectMap<>(previous.size() + preloaded.size());
+            BiConsumer<Long, ProductFactor> reResolve = (productId, factor) -> rebuilt.put(productId,
+                    factors.resolve(productId, DEFAULT_CATEGORY.equals(factor.category()) ? null : factor.category()));
+            previous.forEach(reResolve);
+            preloaded.forEach(reResolve);
+            byProduct = rebuilt;
+        }
+        snapshot = new Snapshot(byProduct, factors);
+        preloaded.clear();
+        log.info("Loaded emission factors for {} products ({} category and {} product factors)",
+                byProduct.size(), categoryRows.size(), productRows.size());
+    }
+    
+    private Map<Long, CatalogProductDto> lookupProducts(Collection<Long> productIds) {
+        try {
+            return catalogClient.getProductsBlocking(productIds, lookupTimeout);
+        } catch (RuntimeException e) {
+            log.warn("Catalog lookup for emission factors failed, using defaults: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+    
+    /**
+     * @param category     catalog category name, or {@link #DEFAULT_CATEGORY}
+     * @param kgCo2ePerKg  kg CO2e per kg of product
+     * @param unitWeightKg weight of one unit, for items sold by quantity
+     */
+    public record ProductFactor(String category, BigDecimal kgCo2ePerKg, BigDecimal unitWeightKg) {
+    }
+    
+    private record Snapshot(LongObjectMap<ProductFactor> byProduct, Factors factors) {
+    }
+    
+    /**
+     * Factor rows by product and by category; a product row wins over its category's row.
+     */
+    private record Factors(Map<Long, EmissionFactor> productRows, Map<String, EmissionFactor> categoryRows) {
+        
+        ProductFactor resolve(long productId, String categoryName) {
+            EmissionFactor categoryRow = categoryName != null ? categoryRows.get(categoryName) : null;
+            EmissionFactor productRow = productRows.get(productId);
+            String category = categoryRow != null ? categoryName : DEFAULT_CATEGORY;
+            
+            BigDecimal factor = productRow != null ? productRow.getKgCo2ePerKg()
+                    : categoryRow != null ? categoryRow.getKgCo2ePerKg()
+                    : DEFAULT_FACTOR.kgCo2ePerKg();
+            BigDecimal unitWeight = productRow != null && productRow.getUnitWeightKg() != null ? productRow.getUnitWeightKg()
+                    : categoryRow != null && categoryRow.getUnitWeightKg() != null ? categoryRow.getUnitWeightKg()
+                    : DEFAULT_FACTOR.unitWeightKg();
+            return new ProductFactor(category, factor, unitWeight);
+        }
+    }
+}
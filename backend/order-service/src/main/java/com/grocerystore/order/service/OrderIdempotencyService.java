@@ -0,0 +1,190 @@
+package com.grocerystore.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocerystore.order.dto.CreateOrderRequest;
+import com.grocerystore.order.dto.OrderDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes order creation safe to retry with an {@code Idempotency-Key}.
+ * 
+ * Keys are scoped to the authenticated caller (the user id in their token, not the
+ * one in the request body, which anyone can set) and stored in {@code order_idempotency_keys} with a
+ * SHA-256 of the request and the resulting order number, for {@code ttl-hours}.
+ * The key row is inserted in the same transaction as the order, so:
+ * - a retry after success gets the original order back, without new writes;
+ * - a retry after failure starts over, because the failed attempt's row rolled back;
+ * - a retry while the first attempt is still running on another instance blocks
+ *   on the key row until that attempt commits, then gets its order.
+ * Retries reaching the same instance while the first attempt runs wait on it in
+ * memory instead, without taking a database connection.
+ * 
+ * Reusing a key with a different request is refused.
+ */
+@Slf4j
+@Service
+public class OrderIdempotencyService {
+    
+    private final OrderService orderService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final long ttlHours;
+    private final long waitTimeoutMs;
+    
+    public OrderIdempotencyService(OrderService orderService,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${orders.idempotency.ttl-hours:24}") long ttlHours,
+                                   @Value("${orders.idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.orderService = orderService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlHours = ttlHours;
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+    
+    /**
+     * Create the order, or return the order an earlier request by the same caller
+     * with this key created.
+     */
+    public Result createOrder(Long callerId, String idempotencyKey, CreateOrderRequest request) {
+        byte[] requestHash = hash(request);
+        String scopedKey = callerId + ":" + idempotencyKey;
+        
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return awaitRunning(running, requestHash);
+        }
+        try {
+            orderService.preloadCatalogData(request.getItems());
+            Result result = transactionTemplate.execute(status ->
+                    createOnce(callerId, idempotencyKey, requestHash, request));
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+    
+    private Result createOnce(Long userId, String idempotencyKey, byte[] requestHash, CreateOrderRequest request) {
+        // Claims a new key or takes over an expired one; blocks while another transaction holds it
+        int claimed = jdbcTemplate.update(
+                "INSERT INTO order_idempotency_keys (user_id, idempotency_key, request_hash, expires_at) " +
+                "VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+                "order_number = NULL, expires_at = EXCLUDED.expires_at " +
+                "WHERE order_idempotency_keys.expires_at < CURRENT_TIMESTAMP",
+                userId, idempotencyKey, requestHash, Timestamp.valueOf(LocalDateTime.now().plusHours(ttlHours)));
+        if (claimed == 0) {
+            return replay(userId, idempotencyKey, requestHash);
+        }
+        
+        OrderDto order = orderService.createOrder(request);
+        jdbcTemplate.update("UPDATE order_idempotency_keys SET order_number = ? WHERE user_id = ? AND idempotency_key = ?",
+                order.getOrderNumber(), userId, idempotencyKey);
+        return new Result(order, false);
+    }
+    
+    private Result replay(Long userId, String idempotencyKey, byte[] requestHash) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT request_hash, order_number FROM order_idempotency_keys WHERE user_id = ? AND idempotency_key = ?",
+                userId, idempotencyKey);
+        if (rows.isEmpty() || rows.get(0).get("order_number") == null) {
+            // Only possible if the row was deleted or its order not recorded; let the client retry later
+            throw new IdempotencyConflictException(IdempotencyConflictException.Reason.IN_PROGRESS);
+        }
+        if (!MessageDigest.isEqual((byte[]) rows.get(0).get("request_hash"), requestHash)) {
+            throw new IdempotencyConflictException(IdempotencyConflictException.Reason.KEY_REUSED);
+        }
+        String orderNumber = (String) rows.get(0).get("order_number");
+        log.info("Replaying order {} for idempotency key {} of user {}", orderNumber, idempotencyKey, userId);
+        return new Result(orderService.getOrderByOrderNumber(orderNumber), true);
+    }
+    
+    private Result awaitRunning(InFlight running, byte[] requestHash) {
+        if (!MessageDigest.isEqual(running.requestHash(), requestHash)) {
+            throw new IdempotencyConflictException(IdempotencyConflictException.Reason.KEY_REUSED);
+        }
+        try {
+            Result result = running.result().get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            return new Result(result.order(), true);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException(IdempotencyConflictException.Reason.IN_PROGRESS);
+        } catch (ExecutionException e) {
+            // The first attempt failed; this request gets the same answer and may retry
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(IdempotencyConflictException.Reason.IN_PROGRESS);
+        }
+    }
+    
+    private byte[] hash(CreateOrderRequest request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to hash order request", e);
+        }
+    }
+    
+    @Scheduled(cron = "${orders.idempotency.cleanup-cron:0 10 * * * *}")
+    public void deleteExpiredKeys() {
+        int deleted = jdbcTemplate.update("DELETE FROM order_idempotency_keys WHERE expires_at < CURRENT_TIMESTAMP");
+        if (deleted > 0) {
+            log.info("Deleted {} expired order idempotency keys", deleted);
+        }
+    }
+    
+    public record Result(OrderDto order, boolean replayed) {
+    }
+    
+    private record InFlight(byte[] requestHash, CompletableFuture<Result> result) {
+    }
+    
+    public static class IdempotencyConflictException extends RuntimeException {
+        
+        public enum Reason {
+            // An earlier request with this key hasn't finished yet
+            IN_PROGRESS,
+            // The key was already used with a different request
+            KEY_REUSED
+        }
+        
+        private final Reason reason;
+        
+        public IdempotencyConflictException(Reason reason) {
+            super(reason == Reason.KEY_REUSED
+                    ? "Idempotency key was already used with a different request"
+                    : "A request with this idempotency key is still in progress");
+            this.reason = reason;
+        }
+        
+        public Reason getReason() {
+            return reason;
+        }
+    }
+}
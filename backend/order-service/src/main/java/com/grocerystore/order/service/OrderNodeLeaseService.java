@@ -0,0 +1,62 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.model.OrderNodeLease;
+import com.grocerystore.order.repository.OrderNodeLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Hands out order number node ids from the order_node_leases table, so every running
+ * instance generates with an id no other instance holds, without per-instance config.
+ *
+ * A lease runs for {@code orders.number.lease-seconds} and is renewed well before
+ * that while the instance runs. Only an expired lease is handed out again, so an id
+ * moves to another instance only after its holder has failed to renew for the whole
+ * lease, by which time it can no longer save orders either.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderNodeLeaseService {
+    
+    private final OrderNodeLeaseRepository leaseRepository;
+    
+    // Tells this run's leases apart from those of an earlier run on the same host
+    private final String owner = UUID.randomUUID().toString();
+    
+    @Value("${orders.number.lease-seconds:600}")
+    private long leaseSeconds;
+    
+    @Transactional
+    public int acquire() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderNodeLease lease = leaseRepository.lockExpired(now)
+                .orElseThrow(() -> new RuntimeException("No order node id is free; all are leased by running instances"));
+        lease.setOwner(owner);
+        lease.setLeasedUntil(now.plusSeconds(leaseSeconds));
+        log.info("Leased order node id {}", lease.getNodeId());
+        return lease.getNodeId();
+    }
+    
+    /**
+     * Extend the lease on a node id this instance holds. False if it has been taken over.
+     */
+    @Transactional
+    public boolean renew(int nodeId) {
+        return leaseRepository.renew(nodeId, owner, LocalDateTime.now().plusSeconds(leaseSeconds)) == 1;
+    }
+    
+    /**
+     * Give a node id back on shutdown, so a replacement instance can take it straight away.
+     */
+    @Transactional
+    public void release(int nodeId) {
+        leaseRepository.renew(nodeId, owner, LocalDateTime.now());
+    }
+}
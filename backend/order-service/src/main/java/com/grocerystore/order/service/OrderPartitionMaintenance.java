@@ -0,0 +1,82 @@
+package com.grocerystore.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of orders and order_items (see V16) rolling.
+ * 
+ * Creates partitions {@code months-ahead} months into the future, so inserts never
+ * run past the last month, and moves months older than {@code archive-after-months}
+ * into orders_archive / order_items_archive. Moved partitions are frozen once, after
+ * which autovacuum has nothing left to do in them; the live tables only ever hold
+ * the retention window, so their indexes and vacuum work stay the same size.
+ * 
+ * Runs on startup and nightly. Statements run outside a transaction because
+ * VACUUM can't run inside one; the SQL functions make each step safe to repeat.
+ */
+@Slf4j
+@Component
+public class OrderPartitionMaintenance {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    
+    public OrderPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                     @Value("${orders.partitions.months-ahead:3}") int monthsAhead,
+                                     @Value("${orders.partitions.archive-after-months:24}") int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            // Don't block startup; the months ahead already exist and the nightly run retries
+            log.error("Order partition maintenance failed on startup", e);
+        }
+    }
+    
+    @Scheduled(cron = "${orders.partitions.maintenance-cron:0 15 2 * * *}")
+    public void maintain() {
+        createFuturePartitions();
+        if (archiveAfterMonths > 0) {
+            archiveOldPartitions();
+        }
+    }
+    
+    void createFuturePartitions() {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        Integer created = jdbcTemplate.queryForObject("SELECT create_order_partitions(?, ?)", Integer.class,
+                Date.valueOf(thisMonth), Date.valueOf(thisMonth.plusMonths(monthsAhead)));
+        if (created != null && created > 0) {
+            log.info("Created {} monthly order partitions", created);
+        }
+    }
+    
+    void archiveOldPartitions() {
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths);
+        List<String> archived = jdbcTemplate.queryForList("SELECT archive_order_partitions(?)", String.class,
+                Date.valueOf(cutoff));
+        for (String partition : archived) {
+            // Names come from pg_class via the function, not from input
+            jdbcTemplate.execute("VACUUM (FREEZE, ANALYZE) \"" + partition + "\"");
+        }
+        if (!archived.isEmpty()) {
+            log.info("Archived order partitions before {}: {}", cutoff, archived);
+        }
+    }
+}
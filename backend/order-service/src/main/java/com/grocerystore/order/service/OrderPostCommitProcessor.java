@@ -0,0 +1,108 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.CarbonFootprintDto;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the slow parts of order processing after the order's transaction has
+ * committed, currently the carbon footprints of POS batch orders, so a batch
+ * holds a database connection only for its own inserts. Single checkouts record
+ * their footprint inline (see {@link OrderService#createOrder}).
+ * 
+ * Work runs on a small pool and each step is retried with exponential backoff.
+ * Each step runs in a single local transaction, so a failed attempt leaves
+ * nothing behind for its retry to duplicate. Stock is not handled here:
+ * catalog-service applies it from order.confirmed events.
+ */
+@Slf4j
+@Component
+public class OrderPostCommitProcessor {
+    
+    private final OrderRepository orderRepository;
+    private final CarbonFootprintService carbonFootprintService;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService workers;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    
+    public OrderPostCommitProcessor(OrderRepository orderRepository,
+                                    CarbonFootprintService carbonFootprintService,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${orders.post-commit.workers:4}") int workerCount,
+                                    @Value("${orders.post-commit.max-attempts:6}") int maxAttempts,
+                                    @Value("${orders.post-commit.initial-backoff-ms:500}") long initialBackoffMs) {
+        this.orderRepository = orderRepository;
+        this.carbonFootprintService = carbonFootprintService;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = Executors.newScheduledThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-post-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+    }
+    
+    /**
+     * A new order was placed: record its carbon footprint.
+     */
+    public void orderPlaced(Order order) {
+        Long orderId = order.getId();
+        afterCommit(() -> submit("carbon footprint for order " + orderId, () -> recordCarbonFootprint(orderId), 1));
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private void recordCarbonFootprint(Long orderId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+            CarbonFootprintDto footprint = carbonFootprintService.calculateCarbonFootprint(order);
+            carbonFootprintService.saveCarbonFootprint(order, footprint);
+        });
+    }
+    
+    private void submit(String description, Runnable work, int attempt) {
+        long delayMs = attempt == 1 ? 0 : initialBackoffMs << Math.min(attempt - 2, 16);
+        workers.schedule(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on {} after {} attempts: {}", description, attempt, e.getMessage());
+                    return;
+                }
+                log.warn("Failed {} (attempt {}), retrying: {}", description, attempt, e.getMessage());
+                submit(description, work, attempt + 1);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
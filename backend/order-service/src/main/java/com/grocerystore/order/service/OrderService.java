@@ -3,17 +3,27 @@ package com.grocerystore.order.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.grocerystore.order.dto.*;
+import com.grocerystore.order.event.ScheduledOrderChangedEvent;
 import com.grocerystore.order.model.*;
 import com.grocerystore.order.repository.*;
+import com.grocerystore.order.util.Money;
+import com.grocerystore.order.util.OrderNumberGenerator;
+import com.grocerystore.order.util.OrderPricing;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -26,111 +36,145 @@ import java.util.stream.Collectors;
 public class OrderService {
     
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final ScheduledOrderRepository scheduledOrderRepository;
     private final ScheduledOrderItemRepository scheduledOrderItemRepository;
     private final OrderExecutionHistoryRepository executionHistoryRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
     private final EntityManager entityManager;
     private final CarbonFootprintService carbonFootprintService;
-    private final CatalogServiceClient catalogServiceClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SalesRollupService salesRollupService;
+    private final UserProductStatsService userProductStatsService;
+    private final ProductPriceCache productPriceCache;
+    private final OrderNumberGenerator orderNumberGenerator;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int ITEM_FETCH_BATCH = 1000;
+    // How far an order's createdAt may be from the time encoded in its number (clock skew, borrowed milliseconds)
+    private static final Duration ORDER_NUMBER_CLOCK_SLACK = Duration.ofDays(1);
+    
     private static final String EXCHANGE = "order-exchange";
     private static final String ROUTING_KEY = "order.created";
+    private static final String CONFIRMED_ROUTING_KEY = "order.confirmed";
+    private static final String STATUS_CHANGED_ROUTING_KEY = "order.status.changed";
+    private static final String ORDER_AGGREGATE = "ORDER";
     
-    // Utah state grocery tax rate: 6.1%
-    private static final BigDecimal TAX_RATE = new BigDecimal("0.061");
-    
-    // Delivery fee for orders below $100
-    private static final BigDecimal DELIVERY_FEE = new BigDecimal("10.00");
-    private static final BigDecimal FREE_DELIVERY_THRESHOLD = new BigDecimal("100.00");
+    /**
+     * Fetch what the price and emission factor caches don't hold yet for these items.
+     * Callers run this before the order's transaction opens: inside it the caches
+     * never call catalog-service, so no pooled connection waits on a remote call.
+     */
+    public void preloadCatalogData(List<OrderItemDto> items) {
+        Set<Long> productIds = items.stream()
+                .filter(Objects::nonNull)
+                .map(OrderItemDto::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        productPriceCache.preload(productIds);
+        carbonFootprintService.preloadEmissionFactors(productIds);
+    }
     
     @Transactional
     public OrderDto createOrder(CreateOrderRequest request) {
-        String orderNumber = "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        
-        // Calculate subtotal (before tax)
-        BigDecimal subtotal = request.getItems().stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        String orderNumber = orderNumberGenerator.nextOrderNumber();
+        boolean isPosOrder = Boolean.TRUE.equals(request.getIsPosOrder());
         
-        // Calculate tax (6.1% of subtotal)
-        BigDecimal taxAmount = subtotal.multiply(TAX_RATE).setScale(2, java.math.RoundingMode.HALF_UP);
+        // Price every line from the catalog price cache; client-sent prices are ignored
+        List<OrderItem> orderItems = new ArrayList<>(request.getItems().size());
+        long subtotalCents = priceItems(request.getItems(), isPosOrder, orderItems);
         
-        // Calculate amount after tax (subtotal + tax)
-        BigDecimal amountAfterTax = subtotal.add(taxAmount);
-        
-        // Calculate delivery fee: $10 if order total (subtotal + tax) is below $100
-        // For POS orders, no delivery fee
-        BigDecimal deliveryFee = BigDecimal.ZERO;
-        if (request.getIsPosOrder() == null || !request.getIsPosOrder()) {
-            if (amountAfterTax.compareTo(FREE_DELIVERY_THRESHOLD) < 0) {
-                deliveryFee = DELIVERY_FEE;
-            }
-        }
-        
-        // Calculate total (subtotal + tax + delivery fee)
-        BigDecimal totalAmount = amountAfterTax.add(deliveryFee);
+        // Tax (6.1% of subtotal) and delivery fee ($10 below $100 after tax, none for POS)
+        long taxCents = OrderPricing.tax(subtotalCents);
+        long amountAfterTaxCents = subtotalCents + taxCents;
+        long deliveryFeeCents = OrderPricing.deliveryFee(amountAfterTaxCents, isPosOrder);
+        long totalCents = amountAfterTaxCents + deliveryFeeCents;
         
         final Order order = Order.builder()
                 .orderNumber(orderNumber)
                 .userId(request.getUserId())
-                .subtotal(subtotal)
-                .taxAmount(taxAmount)
-                .deliveryFee(deliveryFee)
-                .totalAmount(totalAmount)
-                .status(request.getIsPosOrder() ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.PENDING)
+                .subtotal(Money.fromCents(subtotalCents))
+                .taxAmount(Money.fromCents(taxCents))
+                .deliveryFee(Money.fromCents(deliveryFeeCents))
+                .totalAmount(Money.fromCents(totalCents))
+                .status(isPosOrder ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.PENDING)
                 .paymentMethod(request.getPaymentMethod())
-                .isPosOrder(request.getIsPosOrder() != null ? request.getIsPosOrder() : false)
+                .isPosOrder(isPosOrder)
                 .shippingAddress(request.getShippingAddress())
                 .build();
         
-        List<OrderItem> orderItems = request.getItems().stream()
-                .map(itemDto -> {
-                    // Calculate subtotal: use weight if available, otherwise use quantity
-                    BigDecimal itemSubtotal;
-                    if (itemDto.getWeight() != null && itemDto.getWeight().compareTo(BigDecimal.ZERO) > 0) {
-                        itemSubtotal = itemDto.getPrice().multiply(itemDto.getWeight());
-                    } else {
-                        itemSubtotal = itemDto.getPrice().multiply(BigDecimal.valueOf(itemDto.getQuantity()));
-                    }
-                    
-                    return OrderItem.builder()
-                            .order(order)
-                            .productId(itemDto.getProductId())
-                            .productName(itemDto.getProductName())
-                            .price(itemDto.getPrice())
-                            .quantity(itemDto.getQuantity() != null ? itemDto.getQuantity() : 1)
-                            .weight(itemDto.getWeight())
-                            .subtotal(itemSubtotal)
-                            .build();
-                })
-                .collect(Collectors.toList());
-        
+        orderItems.forEach(item -> item.setOrder(order));
         order.setItems(orderItems);
-        Order savedOrder = orderRepository.save(order);
         
-        // Calculate and save carbon footprint
+        // Emission factors are precomputed, so the footprint is a lookup per item and
+        // goes in with the order; the response carries it as before
+        CarbonFootprintDto footprint = null;
         try {
-            CarbonFootprintDto footprint = carbonFootprintService.calculateCarbonFootprint(savedOrder);
-            carbonFootprintService.saveCarbonFootprint(savedOrder, footprint);
-            // Reload order to get updated carbon footprint
-            savedOrder = orderRepository.findById(savedOrder.getId()).orElse(savedOrder);
-        } catch (Exception e) {
-            log.warn("Failed to calculate carbon footprint for order {}: {}", savedOrder.getId(), e.getMessage());
+            footprint = carbonFootprintService.calculateCarbonFootprint(order);
+            carbonFootprintService.applyCarbonFootprint(order, footprint);
+        } catch (RuntimeException e) {
+            log.warn("Failed to calculate carbon footprint for order {}: {}", orderNumber, e.getMessage());
+        }
+        
+        Order savedOrder = orderRepository.save(order);
+        if (footprint != null) {
+            carbonFootprintService.recordHistory(savedOrder, footprint);
         }
+        salesRollupService.recordStatusChange(savedOrder, null);
+        userProductStatsService.recordStatusChange(savedOrder, null);
         
-        // Update stock if order is confirmed (POS orders are confirmed immediately)
         if (savedOrder.getStatus() == Order.OrderStatus.CONFIRMED) {
-            updateStockForOrder(savedOrder);
+            publishOrderConfirmedEvent(savedOrder);
         }
         
         // Publish order created event
         publishOrderCreatedEvent(savedOrder);
+        publishOrderStatusChangedEvent(savedOrder, null);
         
         return toOrderDto(savedOrder);
     }
     
+    /**
+     * Build order lines priced from the catalog price cache into {@code orderItems}
+     * and return their subtotal in cents.
+     * Online orders also need the product to be in stock; at a POS lane the item is
+     * already in the customer's hands, so only an active catalog price is required.
+     */
+    private long priceItems(List<OrderItemDto> items, boolean isPosOrder, List<OrderItem> orderItems) {
+        Map<Long, ProductPriceCache.ProductPrice> prices = productPriceCache.getPrices(
+                items.stream().map(OrderItemDto::getProductId).collect(Collectors.toSet()));
+        
+        long subtotalCents = 0;
+        for (OrderItemDto itemDto : items) {
+            ProductPriceCache.ProductPrice catalogPrice = prices.get(itemDto.getProductId());
+            if (catalogPrice == null || !catalogPrice.available() || (!isPosOrder && !catalogPrice.inStock())) {
+                throw new RuntimeException("Product not available: " + itemDto.getProductName());
+            }
+            long unitCents = catalogPrice.priceCents();
+            if (itemDto.getPrice() != null && Money.toCents(itemDto.getPrice()) != unitCents) {
+                log.info("Repriced product {} from {} to catalog price {}",
+                        itemDto.getProductId(), itemDto.getPrice(), Money.fromCents(unitCents));
+            }
+            
+            int quantity = itemDto.getQuantity() != null ? itemDto.getQuantity() : 1;
+            // Subtotal: by weight if available, otherwise by quantity
+            long weightHundredths = itemDto.getWeight() != null ? Money.toHundredths(itemDto.getWeight()) : 0;
+            long lineCents = Money.lineSubtotal(unitCents, quantity, weightHundredths);
+            subtotalCents = Math.addExact(subtotalCents, lineCents);
+            
+            orderItems.add(OrderItem.builder()
+                    .productId(itemDto.getProductId())
+                    .productName(itemDto.getProductName())
+                    .price(Money.fromCents(unitCents))
+                    .quantity(quantity)
+                    .weight(itemDto.getWeight())
+                    .subtotal(Money.fromCents(lineCents))
+                    .build());
+        }
+        return subtotalCents;
+    }
+    
     public OrderDto getOrderById(Long id) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -143,15 +187,18 @@ public class OrderService {
     }
     
     public OrderDto getOrderByOrderNumber(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        Order order = findByOrderNumber(orderNumber)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         return toOrderDto(order);
     }
     
     public List<OrderDto> getOrdersByUserId(Long userId) {
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .map(this::toOrderDto)
-                .collect(Collectors.toList());
+        return toOrderDtos(orderRepository.findByUserIdOrderByCreatedAtDesc(userId));
+    }
+    
+    public Page<OrderDto> getOrdersByUserId(Long userId, int page, int size) {
+        Page<Order> orders = orderRepository.findByUserId(userId, newestFirst(page, size));
+        return new PageImpl<>(toOrderDtos(orders.getContent()), orders.getPageable(), orders.getTotalElements());
     }
     
     public List<OrderDto> getAllOrders(Boolean isPosOrder) {
@@ -161,9 +208,20 @@ public class OrderService {
         } else {
             orders = orderRepository.findAllByOrderByCreatedAtDesc();
         }
-        return orders.stream()
-                .map(this::toOrderDto)
-                .collect(Collectors.toList());
+        return toOrderDtos(orders);
+    }
+    
+    public Page<OrderDto> getAllOrders(Boolean isPosOrder, int page, int size) {
+        Pageable pageable = newestFirst(page, size);
+        Page<Order> orders = isPosOrder != null
+                ? orderRepository.findByIsPosOrder(isPosOrder, pageable)
+                : orderRepository.findAll(pageable);
+        return new PageImpl<>(toOrderDtos(orders.getContent()), orders.getPageable(), orders.getTotalElements());
+    }
+    
+    private static Pageable newestFirst(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
     }
     
     @Transactional
@@ -183,12 +241,17 @@ public class OrderService {
         
         order.setStatus(status);
         order = orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, previousStatus);
+        userProductStatsService.recordStatusChange(order, previousStatus);
+        if (previousStatus != status) {
+            publishOrderStatusChangedEvent(order, previousStatus);
+        }
         
         // Update stock when order status changes to CONFIRMED
         if (previousStatus != Order.OrderStatus.CONFIRMED && status == Order.OrderStatus.CONFIRMED) {
-            log.info("Order {} status changed from {} to CONFIRMED, updating stock", 
+            log.info("Order {} status changed from {} to CONFIRMED, publishing stock update", 
                     order.getOrderNumber(), previousStatus);
-            updateStockForOrder(order);
+            publishOrderConfirmedEvent(order);
         } else {
             log.debug("Order {} status change from {} to {} - no stock update needed", 
                     order.getOrderNumber(), previousStatus, status);
@@ -199,7 +262,7 @@ public class OrderService {
     
     @Transactional
     public OrderDto updateOrderStatusByOrderNumber(String orderNumber, Order.OrderStatus status) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        Order order = findByOrderNumber(orderNumber)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         Order.OrderStatus previousStatus = order.getStatus();
@@ -214,12 +277,17 @@ public class OrderService {
         
         order.setStatus(status);
         order = orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, previousStatus);
+        userProductStatsService.recordStatusChange(order, previousStatus);
+        if (previousStatus != status) {
+            publishOrderStatusChangedEvent(order, previousStatus);
+        }
         
         // Update stock when order status changes to CONFIRMED
         if (previousStatus != Order.OrderStatus.CONFIRMED && status == Order.OrderStatus.CONFIRMED) {
-            log.info("Order {} status changed from {} to CONFIRMED, updating stock", 
+            log.info("Order {} status changed from {} to CONFIRMED, publishing stock update", 
                     order.getOrderNumber(), previousStatus);
-            updateStockForOrder(order);
+            publishOrderConfirmedEvent(order);
         } else {
             log.debug("Order {} status change from {} to {} - no stock update needed", 
                     order.getOrderNumber(), previousStatus, status);
@@ -229,55 +297,110 @@ public class OrderService {
     }
     
     /**
-     * Update stock for all items in an order
-     * This is called when an order is confirmed (either POS orders or online orders after payment)
+     * Confirm an online order once its payment has succeeded. Orders that are no
+     * longer PENDING are left alone, so a late or repeated payment event can't
+     * move an order backwards or decrement its stock twice.
      */
-    private void updateStockForOrder(Order order) {
-        log.info("=== Starting stock update for order {} with {} items ===", 
-                order.getOrderNumber(), order.getItems() != null ? order.getItems().size() : 0);
-        
-        if (order.getItems() == null || order.getItems().isEmpty()) {
-            log.warn("Order {} has no items, skipping stock update", order.getOrderNumber());
+    @Transactional
+    public void confirmPaidOrder(String orderNumber) {
+        Order order = findByOrderNumber(orderNumber)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderNumber));
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            log.info("Order {} is already {}, ignoring payment confirmation", orderNumber, order.getStatus());
             return;
         }
-        
-        for (OrderItem item : order.getItems()) {
-            try {
-                // Calculate quantity to decrement
-                // For weight-based items, use quantity=1 (weight is already accounted for in the order)
-                // For quantity-based items, use the quantity
-                Integer quantityToDecrement = item.getQuantity() != null ? item.getQuantity() : 1;
-                
-                log.info("Updating stock: Product ID={}, Product Name={}, Quantity to decrement={}", 
-                        item.getProductId(), item.getProductName(), quantityToDecrement);
-                
-                catalogServiceClient.updateStock(item.getProductId(), quantityToDecrement);
-                
-                log.info("Successfully updated stock for product {} ({}): decremented by {}", 
-                        item.getProductId(), item.getProductName(), quantityToDecrement);
-            } catch (Exception e) {
-                log.error("Failed to update stock for product {} ({}) in order {}: {}", 
-                        item.getProductId(), item.getProductName(), order.getOrderNumber(), 
-                        e.getMessage(), e);
-                // Continue with other items even if one fails
-            }
-        }
-        
-        log.info("=== Completed stock update for order {} ===", order.getOrderNumber());
+        updateOrderStatusByOrderNumber(orderNumber, Order.OrderStatus.CONFIRMED);
+    }
+    
+    /**
+     * Look up an order by number, restricted to the partitions around the time
+     * encoded in the number. Numbers without one, and backdated POS sales, whose
+     * number was issued at ingest, are found through the order_numbers key.
+     */
+    private Optional<Order> findByOrderNumber(String orderNumber) {
+        return OrderNumberGenerator.createdAtOf(orderNumber)
+                .flatMap(createdAt -> orderRepository.findByOrderNumberAndCreatedAtBetween(orderNumber,
+                        createdAt.minus(ORDER_NUMBER_CLOCK_SLACK), createdAt.plus(ORDER_NUMBER_CLOCK_SLACK)))
+                .or(() -> orderRepository.findByOrderNumberThroughKey(orderNumber));
     }
     
     private void publishOrderCreatedEvent(Order order) {
-        try {
-            // Publish event to RabbitMQ for inventory updates
-            rabbitTemplate.convertAndSend(EXCHANGE, ROUTING_KEY, order.getId());
-        } catch (Exception e) {
-            // Log error but don't fail the order creation if RabbitMQ is unavailable
-            log.error("Failed to publish order created event to RabbitMQ", e);
+        // Written to the outbox in this transaction; OutboxRelay publishes it after commit
+        outboxService.append(ORDER_AGGREGATE, order.getId(), EXCHANGE, ROUTING_KEY, order.getId());
+    }
+    
+    /**
+     * Streamed to the customer's and the store's open screens by every instance's
+     * {@link OrderStatusStreamService}. Goes through the outbox like the other order
+     * events, so a change is only announced once it has committed.
+     */
+    private void publishOrderStatusChangedEvent(Order order, Order.OrderStatus previousStatus) {
+        outboxService.append(ORDER_AGGREGATE, order.getId(), EXCHANGE, STATUS_CHANGED_ROUTING_KEY,
+                OrderStatusChangedEvent.builder()
+                        .orderId(order.getId())
+                        .orderNumber(order.getOrderNumber())
+                        .userId(order.getUserId())
+                        .isPosOrder(order.getIsPosOrder())
+                        .previousStatus(previousStatus)
+                        .status(order.getStatus())
+                        .changedAt(System.currentTimeMillis())
+                        .build());
+    }
+    
+    /**
+     * catalog-service decrements stock from this event. It carries the line items
+     * so catalog-service doesn't need to call back, and is de-duplicated there by order id.
+     */
+    private void publishOrderConfirmedEvent(Order order) {
+        List<OrderConfirmedEvent.Line> lines = order.getItems() == null ? Collections.emptyList()
+                : order.getItems().stream()
+                        // Weight-based items are decremented by their quantity too; the weight is only priced
+                        .map(item -> new OrderConfirmedEvent.Line(item.getProductId(),
+                                item.getQuantity() != null ? item.getQuantity() : 1))
+                        .collect(Collectors.toList());
+        outboxService.append(ORDER_AGGREGATE, order.getId(), EXCHANGE, CONFIRMED_ROUTING_KEY,
+                OrderConfirmedEvent.builder()
+                        .orderId(order.getId())
+                        .orderNumber(order.getOrderNumber())
+                        .items(lines)
+                        .build());
+    }
+    
+    /**
+     * Convert a list of orders, loading the items of all of them with one query
+     * per {@link #ITEM_FETCH_BATCH} orders rather than one lazy load per order.
+     */
+    private List<OrderDto> toOrderDtos(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, List<OrderItem>> itemsByOrderId = new HashMap<>();
+        for (int from = 0; from < orders.size(); from += ITEM_FETCH_BATCH) {
+            List<Order> batch = orders.subList(from, Math.min(from + ITEM_FETCH_BATCH, orders.size()));
+            List<Long> orderIds = new ArrayList<>(batch.size());
+            LocalDateTime earliest = LocalDateTime.MAX;
+            LocalDateTime latest = LocalDateTime.MIN;
+            for (Order order : batch) {
+                orderIds.add(order.getId());
+                earliest = order.getCreatedAt().isBefore(earliest) ? order.getCreatedAt() : earliest;
+                latest = order.getCreatedAt().isAfter(latest) ? order.getCreatedAt() : latest;
+            }
+            // Items share their order's creation time, so only the batch's months are read
+            for (OrderItem item : orderItemRepository.findByOrderIdIn(orderIds, earliest, latest)) {
+                itemsByOrderId.computeIfAbsent(item.getOrder().getId(), id -> new ArrayList<>()).add(item);
+            }
         }
+        return orders.stream()
+                .map(order -> toOrderDto(order, itemsByOrderId.getOrDefault(order.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
     
     private OrderDto toOrderDto(Order order) {
-        List<OrderItemDto> itemDtos = order.getItems().stream()
+        return toOrderDto(order, order.getItems());
+    }
+    
+    private OrderDto toOrderDto(Order order, List<OrderItem> items) {
+        List<OrderItemDto> itemDtos = items.stream()
                 .map(item -> OrderItemDto.builder()
                         .id(item.getId())
                         .productId(item.getProductId())
@@ -311,83 +434,12 @@ public class OrderService {
     }
     
     public SalesReportDto getDailySales(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
-        
-        List<Order> orders = orderRepository.findByCreatedAtBetweenAndStatusIn(
-                startOfDay, endOfDay, 
-                List.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.DELIVERED)
-        );
-        
-        return buildSalesReport(orders, date);
+        return salesRollupService.getDailyReport(date);
     }
     
     public List<SalesReportDto> getMonthlySales(int year, int month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.plusMonths(1);
-        
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atStartOfDay();
-        
-        List<Order> allOrders = orderRepository.findByCreatedAtBetweenAndStatusIn(
-                start, end,
-                List.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.DELIVERED)
-        );
-        
-        return allOrders.stream()
-                .collect(Collectors.groupingBy(order -> order.getCreatedAt().toLocalDate()))
-                .entrySet().stream()
-                .map(entry -> buildSalesReport(entry.getValue(), entry.getKey()))
-                .sorted((a, b) -> a.getDate().compareTo(b.getDate()))
-                .collect(Collectors.toList());
-    }
-    
-    private SalesReportDto buildSalesReport(List<Order> orders, LocalDate date) {
-        long totalOrders = orders.size();
-        BigDecimal totalRevenue = orders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Separate online and POS sales
-        BigDecimal onlineSales = orders.stream()
-                .filter(o -> o.getIsPosOrder() != null && !o.getIsPosOrder())
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal posSales = orders.stream()
-                .filter(o -> o.getIsPosOrder() != null && o.getIsPosOrder())
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // POS payment methods breakdown
-        BigDecimal cashSales = orders.stream()
-                .filter(o -> o.getIsPosOrder() != null && o.getIsPosOrder() 
-                        && o.getPaymentMethod() == Order.PaymentMethod.CASH)
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal cardSales = orders.stream()
-                .filter(o -> o.getIsPosOrder() != null && o.getIsPosOrder()
-                        && (o.getPaymentMethod() == Order.PaymentMethod.CREDIT_CARD 
-                        || o.getPaymentMethod() == Order.PaymentMethod.DEBIT_CARD))
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal qrSales = orders.stream()
-                .filter(o -> o.getIsPosOrder() != null && o.getIsPosOrder()
-                        && o.getPaymentMethod() == Order.PaymentMethod.QR_CODE)
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        return SalesReportDto.builder()
-                .date(date)
-                .totalOrders(totalOrders)
-                .totalRevenue(totalRevenue)
-                .cashSales(cashSales)
-                .cardSales(cardSales)
-                .qrSales(qrSales)
-                .onlineSales(onlineSales)
-                .build();
+        return salesRollupService.getDailyReports(startDate, startDate.plusMonths(1).minusDays(1));
     }
     
     /**
@@ -395,77 +447,7 @@ public class OrderService {
      * Returns products ordered at least 2 times, sorted by frequency
      */
     public List<FrequentlyOrderedProductDto> getFrequentlyOrderedProducts(Long userId) {
-        // Get all orders for the user (only online orders, exclude POS)
-        List<Order> userOrders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .filter(order -> order.getIsPosOrder() == null || !order.getIsPosOrder())
-                .collect(Collectors.toList());
-        
-        if (userOrders.isEmpty()) {
-            return Collections.emptyList();
-        }
-        
-        // Group order items by productId
-        Map<Long, List<OrderItem>> productItemsMap = userOrders.stream()
-                .flatMap(order -> order.getItems().stream())
-                .collect(Collectors.groupingBy(OrderItem::getProductId));
-        
-        // Calculate statistics for each product
-        List<FrequentlyOrderedProductDto> frequentlyOrdered = productItemsMap.entrySet().stream()
-                .filter(entry -> entry.getValue().size() >= 2) // At least ordered 2 times
-                .map(entry -> {
-                    List<OrderItem> items = entry.getValue();
-                    OrderItem firstItem = items.get(0);
-                    
-                    // Calculate averages
-                    BigDecimal totalPrice = items.stream()
-                            .map(OrderItem::getPrice)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    BigDecimal averagePrice = totalPrice.divide(
-                            BigDecimal.valueOf(items.size()), 2, RoundingMode.HALF_UP);
-                    
-                    int totalQuantity = items.stream()
-                            .mapToInt(OrderItem::getQuantity)
-                            .sum();
-                    int averageQuantity = totalQuantity / items.size();
-                    
-                    // Calculate average weight (if any items have weight)
-                    BigDecimal totalWeight = items.stream()
-                            .filter(item -> item.getWeight() != null)
-                            .map(OrderItem::getWeight)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    BigDecimal averageWeight = null;
-                    if (totalWeight.compareTo(BigDecimal.ZERO) > 0) {
-                        long weightItemsCount = items.stream()
-                                .filter(item -> item.getWeight() != null)
-                                .count();
-                        if (weightItemsCount > 0) {
-                            averageWeight = totalWeight.divide(
-                                    BigDecimal.valueOf(weightItemsCount), 2, RoundingMode.HALF_UP);
-                        }
-                    }
-                    
-                    // Get last ordered date
-                    String lastOrderedDate = items.stream()
-                            .map(item -> item.getOrder().getCreatedAt())
-                            .max(LocalDateTime::compareTo)
-                            .map(date -> date.format(DateTimeFormatter.ISO_LOCAL_DATE))
-                            .orElse("");
-                    
-                    return FrequentlyOrderedProductDto.builder()
-                            .productId(firstItem.getProductId())
-                            .productName(firstItem.getProductName())
-                            .averagePrice(averagePrice)
-                            .totalTimesOrdered(items.size())
-                            .averageQuantity(averageQuantity)
-                            .averageWeight(averageWeight)
-                            .lastOrderedDate(lastOrderedDate)
-                            .build();
-                })
-                .sorted((a, b) -> b.getTotalTimesOrdered().compareTo(a.getTotalTimesOrdered())) // Sort by frequency
-                .limit(10) // Top 10 most frequently ordered
-                .collect(Collectors.toList());
-        
-        return frequentlyOrdered;
+        return userProductStatsService.getFrequentlyOrderedProducts(userId);
     }
     
     /**
@@ -557,9 +539,7 @@ public class OrderService {
         // Save order items
         List<ScheduledOrderItem> items = request.getItems().stream()
                 .map(item -> {
-                    BigDecimal subtotal = item.getWeight() != null && item.getWeight().compareTo(BigDecimal.ZERO) > 0
-                        ? item.getPrice().multiply(item.getWeight())
-                        : item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                    BigDecimal subtotal = Money.fromCents(lineSubtotalCents(item));
                     
                     return ScheduledOrderItem.builder()
                             .scheduledOrder(savedOrder)
@@ -579,6 +559,7 @@ public class OrderService {
         ScheduledOrder orderWithItems = scheduledOrderRepository.findById(savedOrder.getId())
                 .orElseThrow(() -> new RuntimeException("Failed to create scheduled order"));
         
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(orderWithItems.getId()));
         return toScheduledOrderDto(orderWithItems);
     }
     
@@ -651,9 +632,7 @@ public class OrderService {
         final ScheduledOrder finalScheduledOrder = scheduledOrder;
         List<ScheduledOrderItem> items = request.getItems().stream()
                 .map(item -> {
-                    BigDecimal subtotal = item.getWeight() != null && item.getWeight().compareTo(BigDecimal.ZERO) > 0
-                        ? item.getPrice().multiply(item.getWeight())
-                        : item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                    BigDecimal subtotal = Money.fromCents(lineSubtotalCents(item));
                     
                     return ScheduledOrderItem.builder()
                             .scheduledOrder(finalScheduledOrder)
@@ -670,6 +649,7 @@ public class OrderService {
         scheduledOrderItemRepository.saveAll(items);
         
         ScheduledOrder updatedOrder = scheduledOrderRepository.save(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(updatedOrder.getId()));
         return toScheduledOrderDto(updatedOrder);
     }
     
@@ -680,6 +660,7 @@ public class OrderService {
         
         scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.CANCELLED);
         scheduledOrderRepository.save(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(id));
     }
     
     @Transactional
@@ -693,6 +674,7 @@ public class OrderService {
         
         scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.PAUSED);
         scheduledOrderRepository.save(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(id));
     }
     
     @Transactional
@@ -700,12 +682,16 @@ public class OrderService {
         ScheduledOrder scheduledOrder = scheduledOrderRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new RuntimeException("Scheduled order not found"));
         
-        if (scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.PAUSED) {
-            throw new RuntimeException("Only paused orders can be resumed");
+        if (scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.PAUSED
+            && scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.FAILED) {
+            throw new RuntimeException("Only paused or failed orders can be resumed");
         }
         
+        // A failed order gets a fresh set of attempts, starting now
         scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.ACTIVE);
+        scheduledOrder.setFailedAttempts(0);
         scheduledOrderRepository.save(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(id));
     }
     
     @Transactional
@@ -713,17 +699,25 @@ public class OrderService {
         ScheduledOrder scheduledOrder = scheduledOrderRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new RuntimeException("Scheduled order not found"));
         
-        // Only allow deletion of pending or cancelled orders
+        // Only allow deletion of pending, cancelled or failed orders
         if (scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.PENDING 
-            && scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.CANCELLED) {
-            throw new RuntimeException("Only pending or cancelled orders can be deleted");
+            && scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.CANCELLED
+            && scheduledOrder.getStatus() != ScheduledOrder.ScheduledOrderStatus.FAILED) {
+            throw new RuntimeException("Only pending, cancelled or failed orders can be deleted");
         }
         
         scheduledOrderRepository.delete(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(id));
+    }
+    
+    private static long lineSubtotalCents(CartItemSnapshot item) {
+        long weightHundredths = item.getWeight() != null ? Money.toHundredths(item.getWeight()) : 0;
+        long quantity = item.getQuantity() != null ? item.getQuantity() : 1;
+        return Money.lineSubtotal(Money.toCents(item.getPrice()), quantity, weightHundredths);
     }
     
     // Helper method to calculate next execution date for recurring orders
-    private LocalDate calculateNextExecutionDate(LocalDate currentDate, ScheduledOrder.RecurrenceType recurrenceType) {
+    static LocalDate calculateNextExecutionDate(LocalDate currentDate, ScheduledOrder.RecurrenceType recurrenceType) {
         switch (recurrenceType) {
             case DAILY:
                 return currentDate.plusDays(1);
@@ -0,0 +1,282 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.config.SchedulingConfig;
+import com.grocerystore.order.dto.OrderStatusChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Pushes order status changes to browsers over Server-Sent Events.
+ * 
+ * Every instance gets every {@link OrderStatusChangedEvent} through its own
+ * queue on order-exchange, whichever instance made the change, and hands it to
+ * the subscriptions held on this instance: the order owner's streams and the
+ * store-wide (admin) streams.
+ * 
+ * Each subscription has a small bounded buffer drained by a shared sender pool,
+ * so a slow client never blocks the listener or other clients. A client that
+ * lets its buffer fill is disconnected; EventSource reconnects on its own and
+ * the client reloads its orders once, instead of the server buffering without limit.
+ * 
+ * A send to a client that stops reading blocks its sender thread until the
+ * container's write timeout. A send still running after
+ * {@code orders.status-stream.send-timeout-ms} gets its client evicted, and the
+ * pool gets an extra thread until that send returns, so stalled clients never
+ * take senders away from the others.
+ */
+@Slf4j
+@Service
+public class OrderStatusStreamService {
+    
+    private static final String EVENT_NAME = "order-status";
+    
+    private final Map<Long, Set<Subscription>> userSubscriptions = new ConcurrentHashMap<>();
+    private final Set<Subscription> storeSubscriptions = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor sender;
+    private final LongFunction<SseEmitter> emitters;
+    private final long timeoutMs;
+    private final long sendTimeoutMs;
+    private final int bufferSize;
+    
+    @Autowired
+    public OrderStatusStreamService(@Value("${orders.status-stream.timeout-ms:1800000}") long timeoutMs,
+                                    @Value("${orders.status-stream.send-timeout-ms:5000}") long sendTimeoutMs,
+                                    @Value("${orders.status-stream.buffer-size:32}") int bufferSize,
+                                    @Value("${orders.status-stream.sender-threads:4}") int senderThreads) {
+        this(SseEmitter::new, timeoutMs, sendTimeoutMs, bufferSize, senderThreads);
+    }
+    
+    OrderStatusStreamService(LongFunction<SseEmitter> emitters, long timeoutMs, long sendTimeoutMs,
+                             int bufferSize, int senderThreads) {
+        this.emitters = emitters;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "order-status-sse-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * Status changes of one customer's orders.
+     */
+    public SseEmitter subscribeUser(Long userId) {
+        // Add and remove under the map's per-key lock, so an emptied set is never dropped while a subscriber joins it
+        return register(
+                subscription -> userSubscriptions.compute(userId, (id, subscriptions) -> {
+                    Set<Subscription> result = subscriptions != null ? subscriptions : ConcurrentHashMap.newKeySet();
+                    result.add(subscription);
+                    return result;
+                }),
+                subscription -> userSubscriptions.computeIfPresent(userId, (id, subscriptions) -> {
+                    subscriptions.remove(subscription);
+                    return subscriptions.isEmpty() ? null : subscriptions;
+                }));
+    }
+    
+    /**
+     * Status changes of every order, for store staff.
+     */
+    public SseEmitter subscribeStore() {
+        return register(storeSubscriptions::add, storeSubscriptions::remove);
+    }
+    
+    @RabbitListener(queues = "#{orderStatusQueue.name}")
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        // Built once and shared: a builder can't be sent more than once
+        Set<ResponseBodyEmitter.DataWithMediaType> message = SseEmitter.event()
+                .name(EVENT_NAME)
+                .data(event, MediaType.APPLICATION_JSON)
+                .build();
+        Set<Subscription> owner = event.getUserId() != null ? userSubscriptions.get(event.getUserId()) : null;
+        if (owner != null) {
+            owner.forEach(subscription -> subscription.offer(message, true));
+        }
+        storeSubscriptions.forEach(subscription -> subscription.offer(message, true));
+    }
+    
+    /**
+     * A comment line every so often keeps proxies from closing idle streams and
+     * finds connections whose client has gone away.
+     */
+    @Scheduled(fixedDelayString = "${orders.status-stream.heartbeat-ms:15000}",
+               scheduler = SchedulingConfig.KEEP_ALIVE_SCHEDULER)
+    public void sendHeartbeats() {
+        Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        userSubscriptions.values().forEach(subscriptions ->
+                subscriptions.forEach(subscription -> subscription.offer(heartbeat, false)));
+        storeSubscriptions.forEach(subscription -> subscription.offer(heartbeat, false));
+    }
+    
+    @Scheduled(fixedDelayString = "${orders.status-stream.stall-check-ms:1000}",
+               scheduler = SchedulingConfig.KEEP_ALIVE_SCHEDULER)
+    public void evictStalledClients() {
+        long now = System.currentTimeMillis();
+        userSubscriptions.values().forEach(subscriptions ->
+                subscriptions.forEach(subscription -> subscription.evictIfStalled(now)));
+        storeSubscriptions.forEach(subscription -> subscription.evictIfStalled(now));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        userSubscriptions.values().forEach(subscriptions -> subscriptions.forEach(Subscription::close));
+        storeSubscriptions.forEach(Subscription::close);
+        sender.shutdownNow();
+    }
+    
+    private SseEmitter register(Consumer<Subscription> add, Consumer<Subscription> remove) {
+        SseEmitter emitter = emitters.apply(timeoutMs);
+        Subscription subscription = new Subscription(emitter, remove);
+        add.accept(subscription);
+        emitter.onCompletion(subscription::remove);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.remove());
+        return emitter;
+    }
+    
+    // Resized under this lock; the maximum is raised before the core size and lowered after it
+    private synchronized void resizeSender(int delta) {
+        if (delta > 0) {
+            sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+            sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+        } else {
+            sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+            sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+        }
+    }
+    
+    private final class Subscription {
+        
+        private final SseEmitter emitter;
+        private final Consumer<Subscription> unregister;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Set when the buffer overflowed; the draining thread completes the emitter
+        private final AtomicBoolean completeOnDrain = new AtomicBoolean();
+        // When the send in progress started; 0 while not sending, -1 once evicted mid-send
+        private final AtomicLong sendStartedAt = new AtomicLong();
+        
+        private Subscription(SseEmitter emitter, Consumer<Subscription> unregister) {
+            this.emitter = emitter;
+            this.unregister = unregister;
+        }
+        
+        /**
+         * Queue an event for this client. When the buffer is full a required event
+         * disconnects the client; an optional one (heartbeat) is just skipped.
+         * 
+         * A full buffer almost always means a send to this client is stuck, and
+         * complete() would wait for it on the listener thread. So the client is only
+         * unregistered here, and the emitter completed by the thread that drains it.
+         */
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> message, boolean required) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(message)) {
+                if (required) {
+                    log.debug("Order status stream buffer full, disconnecting slow client");
+                    completeOnDrain.set(true);
+                    remove();
+                    scheduleDrain();
+                }
+                return;
+            }
+            scheduleDrain();
+        }
+        
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            boolean evicted = false;
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> message;
+                while (!evicted && !closed.get() && (message = buffer.poll()) != null) {
+                    long startedAt = System.currentTimeMillis();
+                    sendStartedAt.set(startedAt);
+                    try {
+                        emitter.send(message);
+                    } finally {
+                        evicted = !sendStartedAt.compareAndSet(startedAt, 0);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                remove();
+            } finally {
+                draining.set(false);
+            }
+            if (evicted) {
+                // Hand back the thread added for this send; only now can the emitter be completed
+                resizeSender(-1);
+                emitter.complete();
+                return;
+            }
+            if (completeOnDrain.getAndSet(false)) {
+                emitter.complete();
+                return;
+            }
+            // An event may have arrived between the last poll and clearing the flag
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+        
+        /**
+         * Evict the client if a send to it has been running too long. Only unregisters:
+         * completing the emitter would wait for the stuck send.
+         */
+        void evictIfStalled(long now) {
+            long startedAt = sendStartedAt.get();
+            if (startedAt > 0 && now - startedAt > sendTimeoutMs && sendStartedAt.compareAndSet(startedAt, -1)) {
+                log.debug("Order status stream send stalled for {}ms, evicting client", now - startedAt);
+                resizeSender(1);
+                remove();
+            }
+        }
+        
+        void close() {
+            remove();
+            emitter.complete();
+        }
+        
+        void remove() {
+            if (closed.compareAndSet(false, true)) {
+                buffer.clear();
+                unregister.accept(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.model.OutboxEvent;
+import com.grocerystore.order.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes outbox events to RabbitMQ.
+ * 
+ * A single relay thread claims a batch of pending events in a short
+ * transaction, leasing them for {@code orders.outbox.lease-ms} so other relays
+ * skip them. It then publishes them all with publisher confirms and waits for
+ * the confirms with no transaction or row locks held, and marks the
+ * acknowledged ones published in a second short transaction. Events that are
+ * nacked, returned as unroutable or time out are retried with exponential
+ * backoff; later events of the same aggregate wait until the failed one goes
+ * through, so per-order ordering holds. If the relay dies mid-batch the lease
+ * runs out and the batch is claimed again. Delivery is at-least-once: consumers
+ * must be idempotent.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long confirmTimeoutMs;
+    private final long leaseMs;
+    private final long maxBackoffSeconds;
+    private final int retentionDays;
+    private volatile boolean running;
+    private Thread relayThread;
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       @Qualifier("outboxRabbitTemplate") RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${orders.outbox.batch-size:100}") int batchSize,
+                       @Value("${orders.outbox.poll-interval-ms:1000}") long pollIntervalMs,
+                       @Value("${orders.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${orders.outbox.lease-ms:30000}") long leaseMs,
+                       @Value("${orders.outbox.max-backoff-seconds:300}") long maxBackoffSeconds,
+                       @Value("${orders.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.leaseMs = leaseMs;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.retentionDays = retentionDays;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        relayThread = new Thread(this::run, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+    
+    /**
+     * Nudge the relay after an outbox write commits.
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+    
+    private void run() {
+        while (running) {
+            try {
+                // A batch holds only the head event of each aggregate, so even a short one can
+                // leave successors behind; go again straight away until a batch comes back empty
+                if (relayBatch() == 0) {
+                    // Caught up: sleep until the next commit or poll, then absorb any extra wake-ups
+                    wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Outbox relay failed, backing off", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the number of events handled in this batch
+     */
+    int relayBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(now, batchSize);
+            if (!batch.isEmpty()) {
+                outboxEventRepository.lease(batch.stream().map(OutboxEvent::getId).toList(), now.plus(leaseMs, ChronoUnit.MILLIS));
+            }
+            return batch;
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<CorrelationData> confirms = new ArrayList<>(events.size());
+        Map<OutboxEvent, String> failures = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            try {
+                rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+                confirms.add(correlation);
+            } catch (RuntimeException e) {
+                confirms.add(null);
+                failures.put(event, e.getMessage());
+            }
+        }
+        
+        List<Long> published = new ArrayList<>(events.size());
+        long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+        for (int i = 0; i < events.size(); i++) {
+            CorrelationData correlation = confirms.get(i);
+            if (correlation == null) {
+                continue;
+            }
+            String error = awaitConfirm(correlation, deadline);
+            if (error == null) {
+                published.add(events.get(i).getId());
+            } else {
+                failures.put(events.get(i), error);
+            }
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!published.isEmpty()) {
+                outboxEventRepository.markPublished(published, LocalDateTime.now());
+            }
+            failures.forEach((event, error) -> markFailed(event, now, error));
+        });
+        return events.size();
+    }
+    
+    /**
+     * @return null once the broker has taken the message, otherwise why it didn't
+     */
+    private String awaitConfirm(CorrelationData correlation, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlation.getFuture()
+                    .get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                return "Broker nack: " + confirm.getReason();
+            }
+            if (correlation.getReturned() != null) {
+                return "Unroutable: " + correlation.getReturned().getReplyText();
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return "Publisher confirm timed out";
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted while waiting for confirm";
+        }
+    }
+    
+    private void markFailed(OutboxEvent event, LocalDateTime now, String error) {
+        int attempts = event.getAttempts() + 1;
+        long backoffSeconds = Math.min(1L << Math.min(attempts, 20), maxBackoffSeconds);
+        outboxEventRepository.markFailed(event.getId(), now.plusSeconds(backoffSeconds), error);
+        log.warn("Outbox event {} ({} {}) not published, attempt {}: {}",
+                event.getId(), event.getAggregateType(), event.getAggregateId(), attempts, error);
+    }
+    
+    private static Message toMessage(OutboxEvent event) {
+        return MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId("outbox-" + event.getId())
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+    }
+    
+    @Scheduled(cron = "${orders.outbox.cleanup-cron:0 30 3 * * *}")
+    public void deletePublishedEvents() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} published outbox events", deleted);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.config.RabbitMQConfig;
+import com.grocerystore.order.dto.PaymentSucceededEvent;
+import com.grocerystore.order.repository.ProcessedPaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Confirms orders when payment-service reports a successful payment.
+ * 
+ * Messages arrive in batches (see {@link RabbitMQConfig#paymentBatchListenerFactory}),
+ * and a whole batch is confirmed in one transaction. Each payment id is
+ * recorded in {@code processed_payments}, so redeliveries are no-ops, and only
+ * PENDING orders are confirmed, so stock is decremented once per order. If the
+ * batch fails, its events are retried one by one and those that still fail
+ * are parked on the dead-letter queue. The batch is only acked once the broker
+ * has confirmed every parked event; if it can't, the batch is rejected and the
+ * broker dead-letters it as a whole (already applied events are no-ops on replay).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentEventService {
+    
+    private final ProcessedPaymentRepository processedPaymentRepository;
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    
+    @Value("${orders.payments.dead-letter-confirm-timeout-ms:5000}")
+    private long deadLetterConfirmTimeoutMs;
+    
+    @RabbitListener(queues = RabbitMQConfig.PAYMENT_SUCCEEDED_QUEUE, containerFactory = "paymentBatchListenerFactory")
+    public void onPaymentSucceeded(List<PaymentSucceededEvent> events) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> events.forEach(this::apply));
+            log.debug("Confirmed payment batch of {}", events.size());
+        } catch (RuntimeException batchFailure) {
+            log.warn("Payment batch of {} failed ({}), retrying individually", events.size(), batchFailure.getMessage());
+            for (PaymentSucceededEvent event : events) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(event));
+                } catch (RuntimeException e) {
+                    log.error("Payment {} for order {} could not be applied, dead-lettering: {}",
+                            event.getPaymentId(), event.getOrderNumber(), e.getMessage());
+                    deadLetter(event);
+                }
+            }
+        }
+    }
+    
+    private void deadLetter(PaymentSucceededEvent event) {
+        CorrelationData correlation = new CorrelationData("payment-" + event.getPaymentId());
+        rabbitTemplate.convertAndSend(RabbitMQConfig.DEAD_LETTER_EXCHANGE,
+                RabbitMQConfig.PAYMENT_SUCCEEDED_DLQ, event, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(deadLetterConfirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpRejectAndDontRequeueException("Interrupted while dead-lettering payment " + event.getPaymentId(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpRejectAndDontRequeueException("Dead-letter publish for payment " + event.getPaymentId()
+                    + " was not confirmed", e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpRejectAndDontRequeueException("Dead-letter publish for payment " + event.getPaymentId()
+                    + " was nacked: " + confirm.getReason());
+        }
+    }
+    
+    private void apply(PaymentSucceededEvent event) {
+        if (event.getPaymentId() == null || event.getOrderNumber() == null) {
+            throw new RuntimeException("Payment event is missing paymentId or orderNumber");
+        }
+        if (processedPaymentRepository.markProcessed(event.getPaymentId(), event.getOrderNumber()) == 0) {
+            log.debug("Payment {} already processed", event.getPaymentId());
+            return;
+        }
+        orderService.confirmPaidOrder(event.getOrderNumber());
+    }
+}
@@ -0,0 +1,420 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.OrderConfirmedEvent;
+import com.grocerystore.order.dto.OrderItemDto;
+import com.grocerystore.order.dto.OrderStatusChangedEvent;
+import com.grocerystore.order.dto.PosOrderBatchRequest;
+import com.grocerystore.order.dto.PosOrderBatchResponse;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.model.OrderItem;
+import com.grocerystore.order.util.Money;
+import com.grocerystore.order.util.OrderNumberGenerator;
+import com.grocerystore.order.util.OrderPricing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Ingests completed POS sales in batches, e.g. a lane syncing the sales it
+ * queued while offline.
+ *
+ * Every sale carries an idempotency key generated by the lane. Keys are claimed
+ * in {@code pos_order_keys} in the same transaction as the orders, so a resent
+ * sale (same or later batch, or a concurrent sync of the same queue) returns the
+ * original order instead of creating a second one.
+ *
+ * Sales are booked on the day and at the prices they were rung up at. A sale
+ * whose time is too far in the past or the future is rejected rather than moved.
+ *
+ * The whole batch is priced with one price-cache lookup and written with JDBC
+ * batches: one round trip each for ids, keys, orders and items. Sales rollup is
+ * updated once per day/payment method. Stock goes to catalog-service as one
+ * order.confirmed event per order, as for single orders, since catalog-service
+ * de-duplicates by order id; its batch listener sums them per product again.
+ * Each order also gets its order.status.changed event, so store staff see synced
+ * sales on the status stream.
+ * Carbon footprints still run per order after commit.
+ */
+@Slf4j
+@Service
+public class PosOrderBatchService {
+    
+    private static final String EXCHANGE = "order-exchange";
+    private static final String CONFIRMED_ROUTING_KEY = "order.confirmed";
+    private static final String STATUS_CHANGED_ROUTING_KEY = "order.status.changed";
+    private static final String ORDER_AGGREGATE = "ORDER";
+    
+    private static final String INSERT_KEY =
+            "INSERT INTO pos_order_keys (idempotency_key, order_id, order_number) VALUES (?, ?, ?) " +
+            "ON CONFLICT (idempotency_key) DO NOTHING";
+    private static final String INSERT_ORDER =
+            "INSERT INTO orders (id, order_number, user_id, subtotal, tax_amount, delivery_fee, total_amount, " +
+            "status, payment_method, is_pos_order, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?)";
+    private static final String INSERT_ITEM =
+            "INSERT INTO order_items (order_id, product_id, product_name, price, quantity, weight, subtotal, order_created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ProductPriceCache productPriceCache;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final SalesRollupService salesRollupService;
+    private final OutboxService outboxService;
+    private final OrderPostCommitProcessor postCommitProcessor;
+    private final int maxBatchSize;
+    private final long maxBackdateDays;
+    private final long maxClockSkewSeconds;
+    private final int keyRetentionDays;
+    
+    public PosOrderBatchService(JdbcTemplate jdbcTemplate,
+                                NamedParameterJdbcTemplate namedJdbcTemplate,
+                                ProductPriceCache productPriceCache,
+                                OrderNumberGenerator orderNumberGenerator,
+                                SalesRollupService salesRollupService,
+                                OutboxService outboxService,
+                                OrderPostCommitProcessor postCommitProcessor,
+                                @Value("${orders.pos-batch.max-batch-size:500}") int maxBatchSize,
+                                @Value("${orders.pos-batch.max-backdate-days:7}") long maxBackdateDays,
+                                @Value("${orders.pos-batch.max-clock-skew-seconds:300}") long maxClockSkewSeconds,
+                                @Value("${orders.pos-batch.key-retention-days:30}") int keyRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.productPriceCache = productPriceCache;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.salesRollupService = salesRollupService;
+        this.outboxService = outboxService;
+        this.postCommitProcessor = postCommitProcessor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBackdateDays = maxBackdateDays;
+        this.maxClockSkewSeconds = maxClockSkewSeconds;
+        this.keyRetentionDays = keyRetentionDays;
+    }
+    
+    @Transactional
+    public PosOrderBatchResponse ingest(PosOrderBatchRequest request) {
+        List<PosOrderBatchRequest.Sale> sales = request.getSales();
+        if (sales.size() > maxBatchSize) {
+            throw new RuntimeException("At most " + maxBatchSize + " sales per batch");
+        }
+        PosOrderBatchResponse.Result[] results = new PosOrderBatchResponse.Result[sales.size()];
+        
+        // Keys seen by an earlier sync, and repeats within this batch
+        Set<String> keys = new HashSet<>();
+        sales.forEach(sale -> keys.add(sale.getIdempotencyKey()));
+        Map<String, PosOrderBatchResponse.Result> existing = findExisting(keys);
+        Map<String, Integer> firstIndexByKey = new HashMap<>();
+        
+        Set<Long> productIds = new HashSet<>();
+        sales.forEach(sale -> sale.getItems().stream()
+                .filter(item -> item != null && item.getProductId() != null)
+                .forEach(item -> productIds.add(item.getProductId())));
+        Map<Long, ProductPriceCache.ProductPrice> prices = productPriceCache.getPrices(productIds);
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingOrder> pending = new ArrayList<>();
+        for (int i = 0; i < sales.size(); i++) {
+            PosOrderBatchRequest.Sale sale = sales.get(i);
+            String key = sale.getIdempotencyKey();
+            if (existing.containsKey(key)) {
+                results[i] = existing.get(key);
+                continue;
+            }
+            if (firstIndexByKey.putIfAbsent(key, i) != null) {
+                // Filled in from the first occurrence below
+                continue;
+            }
+            try {
+                pending.add(price(i, sale, prices, now));
+            } catch (RuntimeException e) {
+                results[i] = rejected(key, e.getMessage());
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            write(pending, results);
+        }
+        
+        for (int i = 0; i < sales.size(); i++) {
+            if (results[i] == null) {
+                PosOrderBatchResponse.Result first = results[firstIndexByKey.get(sales.get(i).getIdempotencyKey())];
+                results[i] = first.getStatus() == PosOrderBatchResponse.Status.REJECTED
+                        ? first
+                        : duplicate(first.getIdempotencyKey(), first.getOrderId(), first.getOrderNumber());
+            }
+        }
+        return summarize(results);
+    }
+    
+    /**
+     * Keys that were ingested before. The lane gets back the original order number.
+     */
+    private Map<String, PosOrderBatchResponse.Result> findExisting(Set<String> keys) {
+        Map<String, PosOrderBatchResponse.Result> existing = new HashMap<>();
+        namedJdbcTemplate.query(
+                "SELECT idempotency_key, order_id, order_number FROM pos_order_keys WHERE idempotency_key IN (:keys)",
+                Map.of("keys", keys),
+                rs -> {
+                    String key = rs.getString(1);
+                    existing.put(key, duplicate(key, rs.getLong(2), rs.getString(3)));
+                });
+        return existing;
+    }
+    
+    private PendingOrder price(int index, PosOrderBatchRequest.Sale sale,
+                               Map<Long, ProductPriceCache.ProductPrice> prices, LocalDateTime now) {
+        LocalDateTime soldAt = saleTime(sale.getSoldAt(), now);
+        List<OrderItem> items = new ArrayList<>(sale.getItems().size());
+        long subtotalCents = priceAsCharged(sale.getItems(), prices, items);
+        long taxCents = OrderPricing.tax(subtotalCents);
+        
+        Order order = Order.builder()
+                .orderNumber(orderNumberGenerator.nextOrderNumber())
+                .userId(sale.getUserId())
+                .subtotal(Money.fromCents(subtotalCents))
+                .taxAmount(Money.fromCents(taxCents))
+                .deliveryFee(Money.fromCents(OrderPricing.deliveryFee(subtotalCents + taxCents, true)))
+                .totalAmount(Money.fromCents(subtotalCents + taxCents))
+                .status(Order.OrderStatus.CONFIRMED)
+                .paymentMethod(sale.getPaymentMethod())
+                .isPosOrder(true)
+                .items(items)
+                .build();
+        order.setCreatedAt(soldAt);
+        order.setUpdatedAt(now);
+        return new PendingOrder(index, sale.getIdempotencyKey(), order);
+    }
+    
+    /**
+     * When the sale was rung up. A lane clock slightly ahead of ours counts as now;
+     * anything further out, or older than the backdate limit, needs a person to look
+     * at it, so it is rejected.
+     */
+    private LocalDateTime saleTime(LocalDateTime soldAt, LocalDateTime now) {
+        if (soldAt == null) {
+            return now;
+        }
+        if (soldAt.isAfter(now.plusSeconds(maxClockSkewSeconds))) {
+            throw new RuntimeException("Sale time " + soldAt + " is in the future");
+        }
+        if (soldAt.isBefore(now.minusDays(maxBackdateDays))) {
+            throw new RuntimeException("Sale time " + soldAt + " is more than " + maxBackdateDays + " days ago");
+        }
+        return soldAt.isAfter(now) ? now : soldAt;
+    }
+    
+    /**
+     * The sale is already paid for, so lines are booked at the price the lane charged,
+     * even for products that have since gone out of stock, changed price or been
+     * withdrawn. The catalog price only fills in lines sent without a price.
+     */
+    static long priceAsCharged(List<OrderItemDto> items, Map<Long, ProductPriceCache.ProductPrice> prices,
+                               List<OrderItem> orderItems) {
+        long subtotalCents = 0;
+        for (OrderItemDto itemDto : items) {
+            if (itemDto == null || itemDto.getProductId() == null) {
+                throw new RuntimeException("Order item without a product");
+            }
+            long unitCents;
+            if (itemDto.getPrice() != null) {
+                unitCents = Money.toCents(itemDto.getPrice());
+            } else {
+                ProductPriceCache.ProductPrice catalogPrice = prices.get(itemDto.getProductId());
+                if (catalogPrice == null || !catalogPrice.available()) {
+                    throw new RuntimeException("No price for product: " + itemDto.getProductName());
+                }
+                unitCents = catalogPrice.priceCents();
+            }
+            int quantity = itemDto.getQuantity() != null ? itemDto.getQuantity() : 1;
+            if (unitCents < 0 || quantity <= 0) {
+                throw new RuntimeException("Invalid price or quantity for product: " + itemDto.getProductName());
+            }
+            long weightHundredths = itemDto.getWeight() != null ? Money.toHundredths(itemDto.getWeight()) : 0;
+            long lineCents = Money.lineSubtotal(unitCents, quantity, weightHundredths);
+            subtotalCents = Math.addExact(subtotalCents, lineCents);
+            
+            orderItems.add(OrderItem.builder()
+                    .productId(itemDto.getProductId())
+                    .productName(itemDto.getProductName())
+                    .price(Money.fromCents(unitCents))
+                    .quantity(quantity)
+                    .weight(itemDto.getWeight())
+                    .subtotal(Money.fromCents(lineCents))
+                    .build());
+        }
+        return subtotalCents;
+    }
+    
+    private void write(List<PendingOrder> pending, PosOrderBatchResponse.Result[] results) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval('orders_id_seq') FROM generate_series(1, ?)", Long.class, pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).order().setId(ids.get(i));
+        }
+        
+        // Claim the keys first; a concurrent sync of the same sale blocks here until it commits, then loses
+        // A single batch of pending.size(), so one row of update counts
+        int[] claimed = jdbcTemplate.batchUpdate(INSERT_KEY, pending, pending.size(), (ps, p) -> {
+            ps.setString(1, p.key());
+            ps.setLong(2, p.order().getId());
+            ps.setString(3, p.order().getOrderNumber());
+        })[0];
+        List<PendingOrder> toInsert = new ArrayList<>(pending.size());
+        Set<String> lostKeys = new HashSet<>();
+        for (int i = 0; i < pending.size(); i++) {
+            if (claimed[i] > 0) {
+                toInsert.add(pending.get(i));
+            } else {
+                lostKeys.add(pending.get(i).key());
+            }
+        }
+        if (!lostKeys.isEmpty()) {
+            Map<String, PosOrderBatchResponse.Result> winners = findExisting(lostKeys);
+            pending.stream()
+                    .filter(p -> lostKeys.contains(p.key()))
+                    .forEach(p -> results[p.index()] = winners.get(p.key()));
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+        
+        jdbcTemplate.batchUpdate(INSERT_ORDER, toInsert, toInsert.size(), (ps, p) -> {
+            Order order = p.order();
+            ps.setLong(1, order.getId());
+            ps.setString(2, order.getOrderNumber());
+            ps.setLong(3, order.getUserId());
+            ps.setBigDecimal(4, order.getSubtotal());
+            ps.setBigDecimal(5, order.getTaxAmount());
+            ps.setBigDecimal(6, order.getDeliveryFee());
+            ps.setBigDecimal(7, order.getTotalAmount());
+            ps.setString(8, order.getStatus().name());
+            ps.setString(9, order.getPaymentMethod() != null ? order.getPaymentMethod().name() : null);
+            ps.setTimestamp(10, Timestamp.valueOf(order.getCreatedAt()));
+            ps.setTimestamp(11, Timestamp.valueOf(order.getUpdatedAt()));
+        });
+        
+        List<OrderItem> items = new ArrayList<>();
+        for (PendingOrder p : toInsert) {
+            for (OrderItem item : p.order().getItems()) {
+                item.setOrder(p.order());
+                item.setOrderCreatedAt(p.order().getCreatedAt());
+                items.add(item);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getOrder().getId());
+            ps.setLong(2, item.getProductId());
+            ps.setString(3, item.getProductName());
+            ps.setBigDecimal(4, item.getPrice());
+            ps.setInt(5, item.getQuantity());
+            ps.setBigDecimal(6, item.getWeight());
+            ps.setBigDecimal(7, item.getSubtotal());
+            ps.setTimestamp(8, Timestamp.valueOf(item.getOrderCreatedAt()));
+        });
+        
+        List<Order> orders = toInsert.stream().map(PendingOrder::order).toList();
+        salesRollupService.recordNewOrders(orders);
+        orders.forEach(this::publishStockEvent);
+        orders.forEach(this::publishStatusChangedEvent);
+        orders.forEach(postCommitProcessor::orderPlaced);
+        
+        for (PendingOrder p : toInsert) {
+            results[p.index()] = PosOrderBatchResponse.Result.builder()
+                    .idempotencyKey(p.key())
+                    .status(PosOrderBatchResponse.Status.CREATED)
+                    .orderId(p.order().getId())
+                    .orderNumber(p.order().getOrderNumber())
+                    .totalAmount(p.order().getTotalAmount())
+                    .build();
+        }
+        log.info("Ingested {} POS orders with {} items", toInsert.size(), items.size());
+    }
+    
+    private void publishStockEvent(Order order) {
+        // Weight-based items are decremented by their quantity too, as for single orders
+        Map<Long, Integer> stock = new TreeMap<>();
+        order.getItems().forEach(item -> stock.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        List<OrderConfirmedEvent.Line> lines = new ArrayList<>(stock.size());
+        stock.forEach((productId, quantity) -> lines.add(new OrderConfirmedEvent.Line(productId, quantity)));
+        outboxService.append(ORDER_AGGREGATE, order.getId(), EXCHANGE, CONFIRMED_ROUTING_KEY,
+                OrderConfirmedEvent.builder()
+                        .orderId(order.getId())
+                        .orderNumber(order.getOrderNumber())
+                        .items(lines)
+                        .build());
+    }
+    
+    private void publishStatusChangedEvent(Order order) {
+        outboxService.append(ORDER_AGGREGATE, order.getId(), EXCHANGE, STATUS_CHANGED_ROUTING_KEY,
+                OrderStatusChangedEvent.builder()
+                        .orderId(order.getId())
+                        .orderNumber(order.getOrderNumber())
+                        .userId(order.getUserId())
+                        .isPosOrder(true)
+                        .status(order.getStatus())
+                        .changedAt(System.currentTimeMillis())
+                        .build());
+    }
+    
+    @Scheduled(cron = "${orders.pos-batch.key-cleanup-cron:0 45 3 * * *}")
+    public void deleteExpiredKeys() {
+        int deleted = jdbcTemplate.update("DELETE FROM pos_order_keys WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(keyRetentionDays)));
+        if (deleted > 0) {
+            log.info("Deleted {} expired POS idempotency keys", deleted);
+        }
+    }
+    
+    private static PosOrderBatchResponse summarize(PosOrderBatchResponse.Result[] results) {
+        int created = 0;
+        int duplicates = 0;
+        int rejected = 0;
+        for (PosOrderBatchResponse.Result result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case REJECTED -> rejected++;
+            }
+        }
+        return PosOrderBatchResponse.builder()
+                .created(created)
+                .duplicates(duplicates)
+                .rejected(rejected)
+                .results(List.of(results))
+                .build();
+    }
+    
+    private static PosOrderBatchResponse.Result duplicate(String key, Long orderId, String orderNumber) {
+        return PosOrderBatchResponse.Result.builder()
+                .idempotencyKey(key)
+                .status(PosOrderBatchResponse.Status.DUPLICATE)
+                .orderId(orderId)
+                .orderNumber(orderNumber)
+                .build();
+    }
+    
+    private static PosOrderBatchResponse.Result rejected(String key, String message) {
+        return PosOrderBatchResponse.Result.builder()
+                .idempotencyKey(key)
+                .status(PosOrderBatchResponse.Status.REJECTED)
+                .message(message)
+                .build();
+    }
+    
+    private record PendingOrder(int index, String key, Order order) {
+    }
+}
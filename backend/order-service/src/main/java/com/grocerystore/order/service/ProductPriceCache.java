@@ -0,0 +1,169 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.CatalogProductDto;
+import com.grocerystore.order.dto.CatalogProductListDto;
+import com.grocerystore.order.dto.ProductPriceChangedEvent;
+import com.grocerystore.order.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local copy of catalog prices and availability, used to price orders at checkout
+ * without calling catalog-service.
+ *
+ * Kept current by product.changed events; each entry remembers the catalog seq it
+ * came from so late or duplicate events can't roll a price back. Every active product,
+ * in stock or not, is reloaded at startup and periodically to heal missed events; the
+ * list carries its own catalog seq, so it can't roll back newer events either.
+ *
+ * Lookups never call catalog-service, since they run inside order transactions.
+ * Products the cache doesn't know yet are fetched in one concurrent batch by
+ * {@link #preload} before the transaction opens.
+ */
+@Slf4j
+@Service
+public class ProductPriceCache {
+    
+    private final ReactiveCatalogClient catalogClient;
+    private final Duration lookupTimeout;
+    private final Map<Long, ProductPrice> prices = new ConcurrentHashMap<>();
+    
+    public ProductPriceCache(ReactiveCatalogClient catalogClient,
+                             @Value("${catalog.prices.lookup-timeout-ms:3000}") long lookupTimeoutMs) {
+        this.catalogClient = catalogClient;
+        this.lookupTimeout = Duration.ofMillis(lookupTimeoutMs);
+    }
+    
+    /**
+     * Cached prices for the given products; products the cache doesn't hold are left out.
+     */
+    public Map<Long, ProductPrice> getPrices(Collection<Long> productIds) {
+        Map<Long, ProductPrice> result = new HashMap<>();
+        for (Long productId : productIds) {
+            ProductPrice price = productId != null ? prices.get(productId) : null;
+            if (price != null) {
+                result.put(productId, price);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Fetch products unknown to the cache from catalog-service in one batch, so a
+     * later {@link #getPrices} finds them. Call before opening a transaction.
+     */
+    public void preload(Collection<Long> productIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long productId : productIds) {
+            if (productId != null && !prices.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        log.debug("Price cache miss for {} product(s), fetching from catalog", missing.size());
+        for (CatalogProductDto product : catalogClient.getProductsBlocking(missing, lookupTimeout).values()) {
+            merge(product.getId(), ProductPrice.of(product, 0L));
+        }
+    }
+    
+    @RabbitListener(queues = "#{productPriceQueue.name}")
+    public void onProductChanged(ProductPriceChangedEvent event) {
+        long seq = event.getSeq() != null ? event.getSeq() : 0L;
+        if (event.getProducts() != null) {
+            for (ProductPriceChangedEvent.Line line : event.getProducts()) {
+                merge(line.getProductId(), ProductPrice.of(line.getPrice(), line.getActive(), line.getStockQuantity(), seq));
+            }
+        }
+        if (event.getDeletedProductIds() != null) {
+            for (Long productId : event.getDeletedProductIds()) {
+                merge(productId, new ProductPrice(0, false, 0, seq));
+            }
+        }
+    }
+    
+    /**
+     * Reload every active product. Cached products missing from the list were
+     * deactivated or deleted and are dropped, unless an event newer than the list
+     * has touched them since; if one is ordered it gets looked up again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.prices.refresh-interval-ms:300000}",
+               initialDelayString = "${catalog.prices.refresh-interval-ms:300000}")
+    public void refresh() {
+        CatalogProductListDto list;
+        try {
+            list = catalogClient.getActiveProductsBlocking(lookupTimeout);
+        } catch (RuntimeException e) {
+            log.warn("Price cache refresh failed, keeping {} cached prices: {}", prices.size(), e.getMessage());
+            return;
+        }
+        if (list == null || list.getProducts() == null) {
+            return;
+        }
+        long seq = list.getSeq() != null ? list.getSeq() : 0L;
+        Set<Long> offered = list.getProducts().stream()
+                .map(CatalogProductDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        for (CatalogProductDto product : list.getProducts()) {
+            if (product.getId() != null) {
+                merge(product.getId(), ProductPrice.of(product, seq));
+            }
+        }
+        prices.entrySet().removeIf(entry -> !offered.contains(entry.getKey()) && entry.getValue().seq() <= seq);
+        log.info("Price cache refreshed at catalog seq {}: {} products", seq, prices.size());
+    }
+    
+    /**
+     * Store the entry unless the cache already holds a newer one. Single lookups, and
+     * lists catalog-service couldn't tie to a seq, carry seq 0 and keep the seq of
+     * whatever they replace.
+     */
+    private ProductPrice merge(Long productId, ProductPrice incoming) {
+        return prices.merge(productId, incoming, (current, update) -> {
+            if (update.seq() == 0L) {
+                return new ProductPrice(update.priceCents(), update.available(), update.stockQuantity(), current.seq());
+            }
+            return update.seq() >= current.seq() ? update : current;
+        });
+    }
+    
+    /**
+     * Price in cents; a product without a price is never available.
+     */
+    public record ProductPrice(long priceCents, boolean available, Integer stockQuantity, long seq) {
+        
+        static ProductPrice of(CatalogProductDto product, long seq) {
+            return of(product.getPrice(), product.getActive(), product.getStockQuantity(), seq);
+        }
+        
+        static ProductPrice of(BigDecimal price, Boolean active, Integer stockQuantity, long seq) {
+            if (price == null) {
+                return new ProductPrice(0, false, stockQuantity, seq);
+            }
+            return new ProductPrice(Money.toCents(price), Boolean.TRUE.equals(active), stockQuantity, seq);
+        }
+        
+        public boolean inStock() {
+            return stockQuantity == null || stockQuantity > 0;
+        }
+    }
+}
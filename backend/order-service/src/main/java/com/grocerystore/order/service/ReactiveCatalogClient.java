@@ -0,0 +1,142 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.CatalogProductDto;
+import com.grocerystore.order.dto.CatalogProductListDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up catalog products one request per product id, all in flight at once.
+ *
+ * A lookup for N products takes about as long as the slowest single call rather than
+ * the sum of them. Concurrency is capped so a large order can't flood catalog-service,
+ * duplicate ids in a request are fetched once, and callers asking for a product that is
+ * already being fetched share the in-flight call.
+ *
+ * Every call goes through the catalog bulkhead and circuit breaker. While the breaker
+ * is open, or too many calls are in flight, lookups fail at once instead of waiting on
+ * a sick catalog-service, and callers fall back as they do for any failed lookup.
+ */
+@Slf4j
+@Service
+public class ReactiveCatalogClient {
+    
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final int maxConcurrency;
+    private final Duration callTimeout;
+    private final Map<Long, Mono<CatalogProductDto>> inFlight = new ConcurrentHashMap<>();
+    
+    public ReactiveCatalogClient(WebClient catalogWebClient,
+                                 CircuitBreaker catalogCircuitBreaker,
+                                 Bulkhead catalogBulkhead,
+                                 @Value("${catalog.client.reactive.max-concurrency:16}") int maxConcurrency,
+                                 @Value("${catalog.client.response-timeout-ms:3000}") long callTimeoutMs) {
+        this.webClient = catalogWebClient;
+        this.circuitBreaker = catalogCircuitBreaker;
+        this.bulkhead = catalogBulkhead;
+        this.maxConcurrency = maxConcurrency;
+        this.callTimeout = Duration.ofMillis(callTimeoutMs);
+    }
+    
+    /**
+     * Fetch the given products concurrently.
+     * Products that are unknown, unavailable or whose lookup failed are left out of the map;
+     * callers fall back to their own defaults for those.
+     */
+    public Mono<Map<Long, CatalogProductDto>> getProducts(Collection<Long> productIds) {
+        return Flux.fromIterable(productIds)
+                .filter(Objects::nonNull)
+                .distinct()
+                .flatMap(this::getProduct, maxConcurrency)
+                .collectMap(CatalogProductDto::getId);
+    }
+    
+    /**
+     * Blocking variant for callers on a worker thread.
+     */
+    public Map<Long, CatalogProductDto> getProductsBlocking(Collection<Long> productIds, Duration timeout) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return getProducts(productIds)
+                .blockOptional(timeout)
+                .orElse(Map.of());
+    }
+    
+    /**
+     * Every active product, in stock or not, and the catalog seq the list reflects, in one call.
+     */
+    public CatalogProductListDto getActiveProductsBlocking(Duration timeout) {
+        return guarded(webClient.get()
+                .uri("/api/catalog/products/active")
+                .retrieve()
+                .bodyToMono(CatalogProductListDto.class)
+                .timeout(timeout))
+                .block();
+    }
+    
+    private Mono<CatalogProductDto> getProduct(Long productId) {
+        return inFlight.computeIfAbsent(productId, id -> fetchProduct(id)
+                .doFinally(signal -> inFlight.remove(id))
+                .cache());
+    }
+    
+    private Mono<CatalogProductDto> fetchProduct(Long productId) {
+        return guarded(webClient.get()
+                .uri("/api/catalog/products/{id}", productId)
+                .retrieve()
+                .bodyToMono(CatalogProductDto.class)
+                .timeout(callTimeout))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                        log.warn("Catalog lookup for product {} failed: {}", productId, e.getStatusCode());
+                    }
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Catalog lookup for product {} failed: {}", productId, e.toString());
+                    return Mono.empty();
+                });
+    }
+    
+    /**
+     * Run a call under the bulkhead and circuit breaker, recording its outcome.
+     * Rejected calls fail with {@link BulkheadFullException} or {@link CallNotPermittedException}.
+     */
+    private <T> Mono<T> guarded(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquirePermission()) {
+                return Mono.error(BulkheadFullException.createBulkheadFullException(bulkhead));
+            }
+            if (!circuitBreaker.tryAcquirePermission()) {
+                bulkhead.onComplete();
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(value -> circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e))
+                    .doOnCancel(circuitBreaker::releasePermission)
+                    .doFinally(signal -> bulkhead.onComplete());
+        });
+    }
+}
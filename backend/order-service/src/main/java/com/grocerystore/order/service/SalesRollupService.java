@@ -0,0 +1,196 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.SalesReportDto;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.model.SalesDailyRollup;
+import com.grocerystore.order.repository.SalesDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps {@code sales_daily_rollup} in step with orders and builds sales reports from it.
+ * 
+ * An order counts towards its creation day while it is CONFIRMED or DELIVERED,
+ * so every status change that crosses that boundary adds or removes it here,
+ * inside the same transaction as the status change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+    
+    static final Set<Order.OrderStatus> COUNTED_STATUSES = Set.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.DELIVERED);
+    
+    private static final String UNKNOWN_PAYMENT_METHOD = "UNKNOWN";
+    
+    private final SalesDailyRollupRepository rollupRepository;
+    
+    /**
+     * Apply an order's status change to the rollup. Pass a null previous status for a new order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(Order order, Order.OrderStatus previousStatus) {
+        boolean wasCounted = previousStatus != null && COUNTED_STATUSES.contains(previousStatus);
+        boolean isCounted = COUNTED_STATUSES.contains(order.getStatus());
+        if (wasCounted == isCounted) {
+            return;
+        }
+        
+        int sign = isCounted ? 1 : -1;
+        BigDecimal amount = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        rollupRepository.add(
+                order.getCreatedAt().toLocalDate(),
+                channelOf(order).name(),
+                order.getPaymentMethod() != null ? order.getPaymentMethod().name() : UNKNOWN_PAYMENT_METHOD,
+                sign,
+                sign > 0 ? amount : amount.negate());
+    }
+    
+    /**
+     * Add a batch of new orders with one upsert per day, channel and payment method
+     * instead of one per order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordNewOrders(Collection<Order> orders) {
+        Map<Bucket, Long> counts = new HashMap<>();
+        Map<Bucket, BigDecimal> amounts = new HashMap<>();
+        for (Order order : orders) {
+            if (!COUNTED_STATUSES.contains(order.getStatus())) {
+                continue;
+            }
+            Bucket bucket = new Bucket(
+                    order.getCreatedAt().toLocalDate(),
+                    channelOf(order).name(),
+                    order.getPaymentMethod() != null ? order.getPaymentMethod().name() : UNKNOWN_PAYMENT_METHOD);
+            counts.merge(bucket, 1L, Long::sum);
+            amounts.merge(bucket, order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO, BigDecimal::add);
+        }
+        counts.forEach((bucket, count) ->
+                rollupRepository.add(bucket.salesDate(), bucket.channel(), bucket.paymentMethod(), count, amounts.get(bucket)));
+    }
+    
+    @Transactional(readOnly = true)
+    public SalesReportDto getDailyReport(LocalDate date) {
+        List<SalesReportDto> reports = getDailyReports(date, date);
+        return reports.isEmpty() ? emptyReport(date) : reports.get(0);
+    }
+    
+    /**
+     * One report per day in [startDate, endDate] that had any sales.
+     */
+    @Transactional(readOnly = true)
+    public List<SalesReportDto> getDailyReports(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, SalesReportDto> byDate = new TreeMap<>();
+        for (SalesDailyRollup row : rollupRepository.findBySalesDateBetweenOrderBySalesDateAsc(startDate, endDate)) {
+            if (row.getOrderCount() == 0) {
+                continue;
+            }
+            SalesReportDto report = byDate.computeIfAbsent(row.getSalesDate(), this::emptyReport);
+            report.setTotalOrders(report.getTotalOrders() + row.getOrderCount());
+            report.setTotalRevenue(report.getTotalRevenue().add(row.getTotalAmount()));
+            
+            if (row.getChannel() == SalesDailyRollup.Channel.ONLINE) {
+                report.setOnlineSales(report.getOnlineSales().add(row.getTotalAmount()));
+                continue;
+            }
+            switch (row.getPaymentMethod()) {
+                case "CASH" -> report.setCashSales(report.getCashSales().add(row.getTotalAmount()));
+                case "CREDIT_CARD", "DEBIT_CARD" -> report.setCardSales(report.getCardSales().add(row.getTotalAmount()));
+                case "QR_CODE" -> report.setQrSales(report.getQrSales().add(row.getTotalAmount()));
+                default -> { }
+            }
+        }
+        return new ArrayList<>(byDate.values());
+    }
+    
+    /**
+     * Sales for [startDate, endDate] summed per day, week (starting Monday) or month,
+     * aggregated entirely in the database.
+     */
+    @Transactional(readOnly = true)
+    public List<SalesReportDto> getReports(LocalDate startDate, LocalDate endDate, ReportBucket bucket) {
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("End date must not be before start date");
+        }
+        List<SalesReportDto> reports = new ArrayList<>();
+        for (Object[] row : rollupRepository.aggregate(startDate, endDate, bucket.unit)) {
+            reports.add(SalesReportDto.builder()
+                    .date(toLocalDate(row[0]))
+                    .totalOrders(((Number) row[1]).longValue())
+                    .totalRevenue((BigDecimal) row[2])
+                    .cashSales((BigDecimal) row[3])
+                    .cardSales((BigDecimal) row[4])
+                    .qrSales((BigDecimal) row[5])
+                    .onlineSales((BigDecimal) row[6])
+                    .build());
+        }
+        return reports;
+    }
+    
+    /**
+     * Recompute the rollup for [startDate, endDate] from the orders table,
+     * e.g. after a manual data fix.
+     * 
+     * Orders keep changing status while this runs, so the rollup is locked against
+     * writers first: transactions that already added to it commit before the orders
+     * are read, and ones that haven't yet wait and add their change on top of the
+     * rebuilt rows. Either way each change is counted exactly once.
+     */
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("End date must not be before start date");
+        }
+        rollupRepository.lockAgainstWriters();
+        rollupRepository.deleteBySalesDateBetween(startDate, endDate);
+        int rows = rollupRepository.insertFromOrders(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        log.info("Rebuilt sales rollup for {} to {} ({} rows)", startDate, endDate, rows);
+        return rows;
+    }
+    
+    private SalesReportDto emptyReport(LocalDate date) {
+        return SalesReportDto.builder()
+                .date(date)
+                .totalOrders(0L)
+                .totalRevenue(BigDecimal.ZERO)
+                .cashSales(BigDecimal.ZERO)
+                .cardSales(BigDecimal.ZERO)
+                .qrSales(BigDecimal.ZERO)
+                .onlineSales(BigDecimal.ZERO)
+                .build();
+    }
+    
+    public enum ReportBucket {
+        DAY("day"), WEEK("week"), MONTH("month");
+        
+        private final String unit;
+        
+        ReportBucket(String unit) {
+            this.unit = unit;
+        }
+    }
+    
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+    
+    private record Bucket(LocalDate salesDate, String channel, String paymentMethod) {
+    }
+    
+    private static SalesDailyRollup.Channel channelOf(Order order) {
+        return Boolean.TRUE.equals(order.getIsPosOrder()) ? SalesDailyRollup.Channel.POS : SalesDailyRollup.Channel.ONLINE;
+    }
+}
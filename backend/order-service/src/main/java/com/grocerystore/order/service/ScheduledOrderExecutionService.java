@@ -0,0 +1,298 @@
+package com.grocerystore.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocerystore.order.dto.CreateOrderRequest;
+import com.grocerystore.order.dto.OrderDto;
+import com.grocerystore.order.dto.OrderItemDto;
+import com.grocerystore.order.event.ScheduledOrderChangedEvent;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.model.OrderExecutionHistory;
+import com.grocerystore.order.model.ScheduledOrder;
+import com.grocerystore.order.model.ShippingAddress;
+import com.grocerystore.order.repository.OrderExecutionHistoryRepository;
+import com.grocerystore.order.repository.ScheduledOrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Turns due scheduled orders into real orders.
+ * 
+ * Rows are due once their next execution date and scheduled time of day have
+ * passed. Workers first claim a batch of due rows with FOR NO KEY UPDATE SKIP LOCKED,
+ * stamping them with a short lease, so concurrent workers and other
+ * order-service instances each get a disjoint batch. Each claimed row is then
+ * executed in its own transaction: the order, the execution history and the
+ * advanced schedule commit together, so a crash never runs an occurrence twice.
+ * A failed attempt pushes the row's lease out by an exponential backoff, and
+ * after {@code orders.scheduled.retry.max-attempts} the schedule is marked
+ * FAILED instead of being retried forever.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduledOrderExecutionService {
+    
+    // Due means: an earlier day, or today with no time of day or a time that has passed
+    private static final String DUE_CONDITION =
+            "status IN ('PENDING', 'ACTIVE') " +
+            "AND (next_execution_date < :today OR (next_execution_date = :today " +
+            "     AND (scheduled_time IS NULL OR scheduled_time <= :timeOfDay))) " +
+            "AND (claimed_until IS NULL OR claimed_until < :now) ";
+    
+    // FOR NO KEY UPDATE rather than FOR UPDATE: it still keeps other claimers out,
+    // but doesn't block the FK check when execution history rows reference the order.
+    private static final String CLAIM_DUE_SQL =
+            "UPDATE scheduled_orders SET claimed_by = :worker, claimed_until = :leaseUntil " +
+            "WHERE id IN (" +
+            "  SELECT id FROM scheduled_orders WHERE " + DUE_CONDITION +
+            "  ORDER BY next_execution_date, id " +
+            "  LIMIT :limit " +
+            "  FOR NO KEY UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+    
+    private static final String CLAIM_BY_ID_SQL =
+            "UPDATE scheduled_orders SET claimed_by = :worker, claimed_until = :leaseUntil " +
+            "WHERE id IN (" +
+            "  SELECT id FROM scheduled_orders WHERE id IN (:ids) AND " + DUE_CONDITION +
+            "  FOR NO KEY UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+    
+    private final ScheduledOrderRepository scheduledOrderRepository;
+    private final OrderExecutionHistoryRepository executionHistoryRepository;
+    private final OrderService orderService;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final String workerId = UUID.randomUUID().toString();
+    
+    @Value("${orders.scheduled.lease-seconds:300}")
+    private long leaseSeconds;
+    
+    @Value("${orders.scheduled.retry.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${orders.scheduled.retry.initial-backoff-seconds:60}")
+    private long initialBackoffSeconds;
+    
+    @Value("${orders.scheduled.retry.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+    
+    /**
+     * Claim up to {@code limit} due orders, oldest first.
+     */
+    @Transactional
+    public List<Long> claimDueOrders(LocalDateTime now, int limit) {
+        return claim(entityManager.createNativeQuery(CLAIM_DUE_SQL).setParameter("limit", limit), now);
+    }
+    
+    /**
+     * Claim the given orders if they are due and nobody else holds them.
+     */
+    @Transactional
+    public List<Long> claimOrders(Collection<Long> ids, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return claim(entityManager.createNativeQuery(CLAIM_BY_ID_SQL).setParameter("ids", ids), now);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<Long> claim(Query query, LocalDateTime now) {
+        List<Number> ids = query
+                .setParameter("worker", workerId)
+                .setParameter("leaseUntil", now.plusSeconds(leaseSeconds))
+                .setParameter("today", now.toLocalDate())
+                .setParameter("timeOfDay", now.toLocalTime())
+                .setParameter("now", now)
+                .getResultList();
+        return ids.stream().map(Number::longValue).collect(Collectors.toList());
+    }
+    
+    /**
+     * Execute one claimed occurrence: create the order, record it and advance the schedule.
+     */
+    @Transactional
+    public void execute(Long scheduledOrderId, LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        ScheduledOrder scheduledOrder = scheduledOrderRepository.findByIdForUpdate(scheduledOrderId)
+                .orElse(null);
+        if (scheduledOrder == null || !workerId.equals(scheduledOrder.getClaimedBy())) {
+            // Deleted, or our lease expired and someone else took it
+            return;
+        }
+        
+        boolean live = scheduledOrder.getStatus() == ScheduledOrder.ScheduledOrderStatus.PENDING
+                || scheduledOrder.getStatus() == ScheduledOrder.ScheduledOrderStatus.ACTIVE;
+        if (!live || scheduledOrder.getNextExecutionDate() == null || !isDue(scheduledOrder, now)) {
+            // Paused, cancelled or rescheduled after it was claimed
+            release(scheduledOrder);
+            return;
+        }
+        
+        if (scheduledOrder.getEndDate() != null && scheduledOrder.getNextExecutionDate().isAfter(scheduledOrder.getEndDate())) {
+            recordHistory(scheduledOrder, null, OrderExecutionHistory.ExecutionStatus.SKIPPED, "Past end date");
+            complete(scheduledOrder);
+            release(scheduledOrder);
+            return;
+        }
+        
+        OrderDto order = orderService.createOrder(toCreateOrderRequest(scheduledOrder));
+        recordHistory(scheduledOrder, order.getId(), OrderExecutionHistory.ExecutionStatus.SUCCESS, null);
+        advance(scheduledOrder, today);
+        release(scheduledOrder);
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(scheduledOrder.getId()));
+        log.info("Executed scheduled order {} as order {} (occurrence {})",
+                scheduledOrder.getId(), order.getOrderNumber(), scheduledOrder.getCurrentOccurrence());
+    }
+    
+    /**
+     * Record a failed attempt and back off: the lease is pushed out to the next retry
+     * time, doubling each attempt. The last allowed attempt marks the schedule FAILED.
+     * Returns true if the order will be retried.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean recordFailure(Long scheduledOrderId, String errorMessage, LocalDateTime now) {
+        ScheduledOrder scheduledOrder = scheduledOrderRepository.findByIdForUpdate(scheduledOrderId).orElse(null);
+        if (scheduledOrder == null || !workerId.equals(scheduledOrder.getClaimedBy())) {
+            // Deleted, or our lease ran out and another worker owns the retry
+            return false;
+        }
+        int attempts = scheduledOrder.getFailedAttempts() + 1;
+        scheduledOrder.setFailedAttempts(attempts);
+        scheduledOrder.setClaimedBy(null);
+        boolean retry = attempts < maxAttempts;
+        if (retry) {
+            scheduledOrder.setClaimedUntil(now.plusSeconds(backoffSeconds(attempts)));
+            recordHistory(scheduledOrder, null, OrderExecutionHistory.ExecutionStatus.FAILED, errorMessage);
+        } else {
+            scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.FAILED);
+            scheduledOrder.setClaimedUntil(null);
+            recordHistory(scheduledOrder, null, OrderExecutionHistory.ExecutionStatus.FAILED,
+                    "Gave up after " + attempts + " attempts: " + errorMessage);
+        }
+        scheduledOrderRepository.save(scheduledOrder);
+        // Re-arm the trigger for the retry time, or disarm it
+        eventPublisher.publishEvent(new ScheduledOrderChangedEvent(scheduledOrder.getId()));
+        return retry;
+    }
+    
+    long backoffSeconds(int attempts) {
+        long backoff = initialBackoffSeconds << Math.min(attempts - 1, 30);
+        return Math.min(backoff, maxBackoffSeconds);
+    }
+    
+    private static boolean isDue(ScheduledOrder scheduledOrder, LocalDateTime now) {
+        LocalDate date = scheduledOrder.getNextExecutionDate();
+        if (date.isBefore(now.toLocalDate())) {
+            return true;
+        }
+        return date.isEqual(now.toLocalDate())
+                && (scheduledOrder.getScheduledTime() == null || !scheduledOrder.getScheduledTime().isAfter(now.toLocalTime()));
+    }
+    
+    private void advance(ScheduledOrder scheduledOrder, LocalDate today) {
+        int occurrence = (scheduledOrder.getCurrentOccurrence() != null ? scheduledOrder.getCurrentOccurrence() : 0) + 1;
+        scheduledOrder.setCurrentOccurrence(occurrence);
+        
+        if (scheduledOrder.getOrderType() != ScheduledOrder.OrderType.RECURRING
+                || scheduledOrder.getRecurrenceType() == null) {
+            complete(scheduledOrder);
+            return;
+        }
+        if (scheduledOrder.getMaxOccurrences() != null && occurrence >= scheduledOrder.getMaxOccurrences()) {
+            complete(scheduledOrder);
+            return;
+        }
+        
+        // If the service was down for a while, don't place a backlog of orders; skip to the next future date
+        LocalDate next = OrderService.calculateNextExecutionDate(
+                scheduledOrder.getNextExecutionDate(), scheduledOrder.getRecurrenceType());
+        int skipped = 0;
+        while (!next.isAfter(today)) {
+            next = OrderService.calculateNextExecutionDate(next, scheduledOrder.getRecurrenceType());
+            skipped++;
+        }
+        if (skipped > 0) {
+            recordHistory(scheduledOrder, null, OrderExecutionHistory.ExecutionStatus.SKIPPED,
+                    "Skipped " + skipped + " missed occurrence(s)");
+        }
+        
+        if (scheduledOrder.getEndDate() != null && next.isAfter(scheduledOrder.getEndDate())) {
+            complete(scheduledOrder);
+            return;
+        }
+        scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.ACTIVE);
+        scheduledOrder.setNextExecutionDate(next);
+    }
+    
+    private void complete(ScheduledOrder scheduledOrder) {
+        scheduledOrder.setStatus(ScheduledOrder.ScheduledOrderStatus.COMPLETED);
+        scheduledOrder.setNextExecutionDate(null);
+    }
+    
+    private void release(ScheduledOrder scheduledOrder) {
+        scheduledOrder.setClaimedBy(null);
+        scheduledOrder.setClaimedUntil(null);
+        scheduledOrder.setFailedAttempts(0);
+        scheduledOrderRepository.save(scheduledOrder);
+    }
+    
+    private void recordHistory(ScheduledOrder scheduledOrder, Long orderId,
+                               OrderExecutionHistory.ExecutionStatus status, String errorMessage) {
+        executionHistoryRepository.save(OrderExecutionHistory.builder()
+                .scheduledOrder(scheduledOrder)
+                .executedOrderId(orderId)
+                .status(status)
+                .errorMessage(errorMessage)
+                .build());
+    }
+    
+    private CreateOrderRequest toCreateOrderRequest(ScheduledOrder scheduledOrder) {
+        if (scheduledOrder.getItems() == null || scheduledOrder.getItems().isEmpty()) {
+            throw new RuntimeException("Scheduled order has no items");
+        }
+        
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setUserId(scheduledOrder.getUserId());
+        request.setItems(scheduledOrder.getItems().stream()
+                .map(item -> OrderItemDto.builder()
+                        .productId(item.getProductId())
+                        .productName(item.getProductName())
+                        .price(item.getPrice())
+                        .quantity(item.getQuantity())
+                        .weight(item.getWeight())
+                        .build())
+                .collect(Collectors.toList()));
+        request.setPaymentMethod(Order.PaymentMethod.ONLINE);
+        request.setIsPosOrder(false);
+        
+        if (scheduledOrder.getShippingAddress() != null) {
+            try {
+                ShippingAddress address = objectMapper.readValue(scheduledOrder.getShippingAddress(), ShippingAddress.class);
+                if (address != null && address.getDeliveryPoint() == null) {
+                    address.setDeliveryPoint(scheduledOrder.getDeliveryPoint());
+                }
+                request.setShippingAddress(address);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to deserialize shipping address", e);
+            }
+        }
+        return request;
+    }
+}
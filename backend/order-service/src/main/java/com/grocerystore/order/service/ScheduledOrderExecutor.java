@@ -0,0 +1,115 @@
+package com.grocerystore.order.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Runs due scheduled orders on a pool of workers, either when
+ * {@link ScheduledOrderTrigger} fires them or from a slow safety sweep.
+ * A sweep keeps claiming batches until no due rows are left, so a backlog
+ * is worked off in one pass instead of one batch per poll.
+ */
+@Slf4j
+@Component
+public class ScheduledOrderExecutor {
+    
+    private final ScheduledOrderExecutionService executionService;
+    private final ExecutorService workers;
+    private final int batchSize;
+    
+    public ScheduledOrderExecutor(ScheduledOrderExecutionService executionService,
+                                  @Value("${orders.scheduled.workers:8}") int workerCount,
+                                  @Value("${orders.scheduled.batch-size:50}") int batchSize) {
+        this.executionService = executionService;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-order-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Safety sweep. The timing wheel fires orders at their exact time, and retries
+     * once their backoff runs out; this only picks up anything it missed.
+     */
+    @Scheduled(fixedDelayString = "${orders.scheduled.poll-interval-ms:600000}")
+    public void executeDueOrders() {
+        int executed = 0;
+        List<Long> claimed;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            claimed = executionService.claimDueOrders(now, batchSize);
+            if (!runAll(claimed, now)) {
+                return;
+            }
+            executed += claimed.size();
+        } while (claimed.size() == batchSize);
+        
+        if (executed > 0) {
+            log.info("Processed {} due scheduled order(s)", executed);
+        }
+    }
+    
+    /**
+     * Execute specific orders whose trigger just fired. Orders that are not due
+     * any more, or that another instance already claimed, are skipped.
+     */
+    public void executeNow(Collection<Long> ids) {
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.stream().skip(from).limit(batchSize).collect(Collectors.toList());
+            LocalDateTime now = LocalDateTime.now();
+            if (!runAll(executionService.claimOrders(batch, now), now)) {
+                return;
+            }
+        }
+    }
+    
+    private boolean runAll(List<Long> claimed, LocalDateTime now) {
+        List<Future<?>> results = new ArrayList<>(claimed.size());
+        for (Long id : claimed) {
+            results.add(workers.submit(() -> executeOne(id, now)));
+        }
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                log.error("Scheduled order worker failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void executeOne(Long id, LocalDateTime now) {
+        try {
+            executionService.execute(id, now);
+        } catch (RuntimeException e) {
+            if (executionService.recordFailure(id, e.getMessage(), LocalDateTime.now())) {
+                log.warn("Scheduled order {} failed, will retry after backing off: {}", id, e.getMessage());
+            } else {
+                log.error("Scheduled order {} failed and will not be retried: {}", id, e.getMessage());
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,148 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.event.ScheduledOrderChangedEvent;
+import com.grocerystore.order.model.ScheduledOrder;
+import com.grocerystore.order.repository.ScheduledOrderRepository;
+import com.grocerystore.order.util.HierarchicalTimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires scheduled orders at their exact date and time of day.
+ * 
+ * Orders due within the next window are loaded into an in-memory
+ * {@link HierarchicalTimingWheel}; a single thread advances the wheel every
+ * tick without touching the database, and hands expired orders to
+ * {@link ScheduledOrderExecutor}. The window is reloaded from the database on
+ * startup and periodically after that, and individual orders are re-armed
+ * whenever a {@link ScheduledOrderChangedEvent} commits.
+ * 
+ * Every instance arms every order; the execution claim makes sure each
+ * occurrence runs once.
+ */
+@Slf4j
+@Component
+public class ScheduledOrderTrigger {
+    
+    private final ScheduledOrderRepository scheduledOrderRepository;
+    private final ScheduledOrderExecutor executor;
+    private final HierarchicalTimingWheel<Long> wheel;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService dispatcher;
+    private final long tickMs;
+    private final long windowMs;
+    
+    public ScheduledOrderTrigger(ScheduledOrderRepository scheduledOrderRepository,
+                                 ScheduledOrderExecutor executor,
+                                 @Value("${orders.scheduled.wheel.tick-ms:1000}") long tickMs,
+                                 @Value("${orders.scheduled.wheel.window-minutes:120}") long windowMinutes) {
+        this.scheduledOrderRepository = scheduledOrderRepository;
+        this.executor = executor;
+        this.tickMs = tickMs;
+        this.windowMs = TimeUnit.MINUTES.toMillis(windowMinutes);
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, 60, System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-order-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-order-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Arm everything due between now and the end of the window. The reload interval
+     * is shorter than the window, so a new window is loaded before the old one runs
+     * out; anything already overdue is left to the executor's sweep.
+     */
+    @Scheduled(fixedDelayString = "${orders.scheduled.wheel.reload-interval-ms:3600000}",
+               initialDelayString = "${orders.scheduled.wheel.reload-interval-ms:3600000}")
+    public void reload() {
+        long now = System.currentTimeMillis();
+        long horizon = now + windowMs;
+        List<ScheduledOrder> orders = scheduledOrderRepository.findArmableBetween(toLocalDateTime(now), toLocalDateTime(horizon));
+        int armed = 0;
+        for (ScheduledOrder order : orders) {
+            if (arm(order, horizon)) {
+                armed++;
+            }
+        }
+        log.info("Armed {} scheduled order trigger(s) for the next {} minutes", armed, TimeUnit.MILLISECONDS.toMinutes(windowMs));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduledOrderChanged(ScheduledOrderChangedEvent event) {
+        long horizon = System.currentTimeMillis() + windowMs;
+        ScheduledOrder order = scheduledOrderRepository.findById(event.scheduledOrderId()).orElse(null);
+        if (order == null || !arm(order, horizon)) {
+            wheel.cancel(event.scheduledOrderId());
+        }
+    }
+    
+    private boolean arm(ScheduledOrder order, long horizon) {
+        boolean live = order.getStatus() == ScheduledOrder.ScheduledOrderStatus.PENDING
+                || order.getStatus() == ScheduledOrder.ScheduledOrderStatus.ACTIVE;
+        if (!live || order.getNextExecutionDate() == null) {
+            return false;
+        }
+        LocalTime time = order.getScheduledTime() != null ? order.getScheduledTime() : LocalTime.MIDNIGHT;
+        LocalDateTime due = order.getNextExecutionDate().atTime(time);
+        if (order.getClaimedUntil() != null && order.getClaimedUntil().isAfter(due)) {
+            // Backing off after a failed attempt (or held by a worker): fire when the lease runs out
+            due = order.getClaimedUntil().plusNanos(TimeUnit.MILLISECONDS.toNanos(tickMs));
+        }
+        long deadline = due.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (deadline > horizon) {
+            return false;
+        }
+        wheel.schedule(order.getId(), deadline);
+        return true;
+    }
+    
+    private void tick() {
+        try {
+            List<Long> due = wheel.advance(System.currentTimeMillis());
+            if (!due.isEmpty()) {
+                // Keep the ticker free; executing can take a while
+                dispatcher.execute(() -> executor.executeNow(due));
+            }
+        } catch (RuntimeException e) {
+            log.error("Scheduled order ticker failed", e);
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,163 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.FrequentlyOrderedProductDto;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.model.OrderItem;
+import com.grocerystore.order.model.UserProductStats;
+import com.grocerystore.order.repository.OrderRepository;
+import com.grocerystore.order.repository.UserProductStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user purchase counters for "Buy Again".
+ * 
+ * An online order counts while it is confirmed or further along (anything in
+ * {@link #COUNTED_STATUSES}). Every status change that crosses that boundary adds
+ * or takes back its lines in the same transaction, and the backfill rebuilds from
+ * the same statuses, so the Buy Again read is a single indexed top-10 query.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserProductStatsService {
+    
+    static final Set<Order.OrderStatus> COUNTED_STATUSES = EnumSet.of(
+            Order.OrderStatus.CONFIRMED, Order.OrderStatus.PROCESSING, Order.OrderStatus.SHIPPED, Order.OrderStatus.DELIVERED);
+    
+    private static final int MIN_TIMES_ORDERED = 2;
+    private static final int BACKFILL_BATCH_SIZE = 200;
+    
+    private final UserProductStatsRepository statsRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    // Its own thread, so a long backfill doesn't hold up the shared common pool
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "buy-again-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Apply an order's status change to the counters. Pass a null previous status for a new order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(Order order, Order.OrderStatus previousStatus) {
+        if (Boolean.TRUE.equals(order.getIsPosOrder()) || order.getItems() == null) {
+            return;
+        }
+        boolean wasCounted = previousStatus != null && COUNTED_STATUSES.contains(previousStatus);
+        boolean isCounted = COUNTED_STATUSES.contains(order.getStatus());
+        if (wasCounted == isCounted) {
+            return;
+        }
+        
+        for (OrderItem item : order.getItems()) {
+            boolean weighed = item.getWeight() != null;
+            long quantity = item.getQuantity() != null ? item.getQuantity() : 1;
+            BigDecimal weight = weighed ? item.getWeight() : BigDecimal.ZERO;
+            if (isCounted) {
+                statsRepository.addOrderLine(order.getUserId(), item.getProductId(), item.getProductName(),
+                        quantity, item.getPrice(), weight, weighed ? 1 : 0, order.getCreatedAt());
+            } else {
+                statsRepository.removeOrderLine(order.getUserId(), item.getProductId(),
+                        quantity, item.getPrice(), weight, weighed ? 1 : 0);
+            }
+        }
+        if (!isCounted) {
+            statsRepository.deleteEmptyByUserId(order.getUserId());
+        }
+    }
+    
+    /**
+     * The user's 10 most frequently ordered products, ordered at least twice.
+     */
+    @Transactional(readOnly = true)
+    public List<FrequentlyOrderedProductDto> getFrequentlyOrderedProducts(Long userId) {
+        return statsRepository
+                .findTop10ByUserIdAndTimesOrderedGreaterThanEqualOrderByTimesOrderedDescLastOrderedAtDesc(userId, MIN_TIMES_ORDERED)
+                .stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Start rebuilding all counters from order history in the background, a batch
+     * of users per transaction. Safe to re-run; returns false if one is already running.
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillExecutor.execute(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Buy Again backfill failed", e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+    
+    @PreDestroy
+    public void stop() {
+        backfillExecutor.shutdownNow();
+    }
+    
+    private void backfill() {
+        List<String> statuses = COUNTED_STATUSES.stream().map(Enum::name).collect(Collectors.toList());
+        long lastUserId = 0;
+        int users = 0;
+        List<Long> batch;
+        do {
+            batch = orderRepository.findUserIdsAfter(lastUserId, BACKFILL_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            final List<Long> userIds = batch;
+            transactionTemplate.executeWithoutResult(status -> {
+                statsRepository.deleteByUserIdIn(userIds);
+                statsRepository.insertFromOrderHistory(userIds, statuses);
+            });
+            users += batch.size();
+            lastUserId = batch.get(batch.size() - 1);
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+        log.info("Buy Again backfill finished for {} users", users);
+    }
+    
+    private FrequentlyOrderedProductDto toDto(UserProductStats stats) {
+        int times = stats.getTimesOrdered();
+        BigDecimal averageWeight = null;
+        if (stats.getWeighedCount() > 0 && stats.getTotalWeight().compareTo(BigDecimal.ZERO) > 0) {
+            averageWeight = stats.getTotalWeight().divide(BigDecimal.valueOf(stats.getWeighedCount()), 2, RoundingMode.HALF_UP);
+        }
+        return FrequentlyOrderedProductDto.builder()
+                .productId(stats.getProductId())
+                .productName(stats.getProductName())
+                .averagePrice(stats.getTotalPrice().divide(BigDecimal.valueOf(times), 2, RoundingMode.HALF_UP))
+                .totalTimesOrdered(times)
+                .averageQuantity((int) (stats.getTotalQuantity() / times))
+                .averageWeight(averageWeight)
+                .lastOrderedDate(stats.getLastOrderedAt().format(DateTimeFormatter.ISO_LOCAL_DATE))
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.grocerystore.order.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel keyed by an arbitrary id.
+ * 
+ * The bottom wheel has {@code wheelSize} buckets of {@code tickMs} each; every
+ * level above it has buckets as wide as the whole level below, and levels are
+ * added on demand, so a timer a day out costs the same O(1) insert as one a
+ * second out. Entries are cascaded down a level when their bucket comes round.
+ * Scheduling an existing key replaces its deadline. Entries fire on the first
+ * tick at or after their deadline, never before it.
+ * 
+ * Not tied to a clock: callers drive it with {@link #advance(long)}.
+ */
+public class HierarchicalTimingWheel<K> {
+    
+    private final int wheelSize;
+    private final Level root;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final Set<Entry<K>> ready = new LinkedHashSet<>();
+    
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize at least 2");
+        }
+        this.wheelSize = wheelSize;
+        this.root = new Level(tickMs, startMs);
+    }
+    
+    /**
+     * Arm {@code key} to fire at {@code deadlineMs}. A deadline that has already
+     * passed fires on the next {@link #advance(long)}.
+     */
+    public synchronized void schedule(K key, long deadlineMs) {
+        cancel(key);
+        // Round up to a whole tick so nothing fires before its deadline
+        long tick = root.tick;
+        Entry<K> entry = new Entry<>(key, Math.floorDiv(deadlineMs + tick - 1, tick) * tick);
+        entries.put(key, entry);
+        if (!root.add(entry)) {
+            ready.add(entry);
+        }
+    }
+    
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.bucket != null) {
+            entry.bucket.remove(entry);
+            entry.bucket = null;
+        } else {
+            ready.remove(entry);
+        }
+        return true;
+    }
+    
+    public synchronized boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Move the wheel forward to {@code nowMs} and return the keys whose deadline has passed.
+     */
+    public synchronized List<K> advance(long nowMs) {
+        while (root.currentTime + root.tick <= nowMs) {
+            root.currentTime += root.tick;
+            root.expire(root.currentTime);
+        }
+        
+        List<K> expired = new ArrayList<>(ready.size());
+        for (Entry<K> entry : ready) {
+            entries.remove(entry.key);
+            expired.add(entry.key);
+        }
+        ready.clear();
+        return expired;
+    }
+    
+    private void reinsert(Entry<K> entry) {
+        entry.bucket = null;
+        if (!root.add(entry)) {
+            ready.add(entry);
+        }
+    }
+    
+    private static final class Entry<K> {
+        private final K key;
+        private final long deadline;
+        private Set<Entry<K>> bucket;
+        
+        private Entry(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+    
+    private final class Level {
+        private final long tick;
+        private final long interval;
+        private final List<Set<Entry<K>>> buckets;
+        private long currentTime;
+        private Level overflow;
+        
+        private Level(long tick, long startMs) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new HashSet<>());
+            }
+            this.currentTime = startMs - Math.floorMod(startMs, tick);
+        }
+        
+        /**
+         * @return false if the entry is already due and should fire now
+         */
+        private boolean add(Entry<K> entry) {
+            if (entry.deadline < currentTime + tick) {
+                return false;
+            }
+            if (entry.deadline < currentTime + interval) {
+                Set<Entry<K>> bucket = buckets.get((int) Math.floorMod(Math.floorDiv(entry.deadline, tick), (long) wheelSize));
+                bucket.add(entry);
+                entry.bucket = bucket;
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime);
+            }
+            return overflow.add(entry);
+        }
+        
+        // Called once this level's clock has reached `time`: flush the bucket for
+        // that slot back through the root, then let the next level catch up.
+        private void expire(long time) {
+            Set<Entry<K>> bucket = buckets.get((int) Math.floorMod(Math.floorDiv(time, tick), (long) wheelSize));
+            if (!bucket.isEmpty()) {
+                List<Entry<K>> due = new ArrayList<>(bucket);
+                bucket.clear();
+                due.forEach(HierarchicalTimingWheel.this::reinsert);
+            }
+            if (overflow != null && Math.floorMod(time, overflow.tick) == 0) {
+                overflow.currentTime = time;
+                overflow.expire(time);
+            }
+        }
+    }
+}
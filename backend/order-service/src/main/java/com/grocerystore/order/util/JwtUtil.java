@@ -3,6 +3,7 @@ package com.grocerystore.order.util;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -14,9 +15,18 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
     
+    // Query parameter the order status streams take their token from
+    public static final String STREAM_TOKEN_PARAM = "access_token";
+    
+    private static final String PURPOSE_CLAIM = "purpose";
+    private static final String STREAM_PURPOSE = "order-stream";
+    
     @Value("${jwt.secret}")
     private String secret;
     
+    @Value("${jwt.stream-token-expiration:60000}")
+    private long streamTokenExpiration;
+    
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
@@ -73,6 +83,57 @@ public class JwtUtil {
         }
     }
     
+    /**
+     * The token a request authenticates with: the Authorization bearer token or, on
+     * the order status streams, a stream token in the query string, since browser
+     * EventSource can't set headers. Stream tokens are refused everywhere else,
+     * and login tokens are never taken from the query string, where they would
+     * end up in access logs.
+     */
+    public String resolveToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            return isStreamToken(token) ? null : token;
+        }
+        String streamToken = request.getParameter(STREAM_TOKEN_PARAM);
+        if (streamToken != null && request.getRequestURI().endsWith("/stream") && isStreamToken(streamToken)) {
+            return streamToken;
+        }
+        return null;
+    }
+    
+    /**
+     * A short-lived token for opening an order status stream, carrying the same
+     * user, id and role as the caller's login token. It only has to outlive the
+     * connect: an open stream isn't checked again.
+     */
+    public String generateStreamToken(String token) {
+        Claims claims = extractAllClaims(token);
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject(claims.getSubject())
+                .claim("userId", claims.get("userId"))
+                .claim("role", claims.get("role"))
+                .claim(PURPOSE_CLAIM, STREAM_PURPOSE)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + streamTokenExpiration))
+                .signWith(getSigningKey())
+                .compact();
+    }
+    
+    public long getStreamTokenExpiration() {
+        return streamTokenExpiration;
+    }
+    
+    private boolean isStreamToken(String token) {
+        try {
+            return STREAM_PURPOSE.equals(extractClaim(token, claims -> claims.get(PURPOSE_CLAIM, String.class)));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
     public Boolean validateToken(String token) {
         try {
             // First try to parse the token to check if it's valid
@@ -0,0 +1,95 @@
+package com.grocerystore.order.util;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to values, for
+ * read-mostly lookup tables keyed by entity id. No boxing of keys, no entry
+ * objects, one array probe per lookup in the common case.
+ *
+ * Not thread-safe for writes: build it on one thread, then publish it
+ * (e.g. through a volatile field) and only read from it afterwards.
+ */
+public final class LongObjectMap<V> {
+    
+    private static final float LOAD_FACTOR = 0.5f;
+    
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+    
+    public void put(long key, V value) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slotOf(key);
+        return used[slot] ? (V) values[slot] : null;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<Long, V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+    
+    /**
+     * The slot holding {@code key}, or the empty slot where it would go.
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    // Sequential ids would cluster under the identity hash; spread them first
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,178 @@
+package com.grocerystore.order.util;
+
+import com.grocerystore.order.config.SchedulingConfig;
+import com.grocerystore.order.service.OrderNodeLeaseService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style order numbers: 41 bits of milliseconds since 2024-01-01,
+ * 10 bits of node id and a 12-bit per-millisecond sequence, rendered as
+ * 13 Crockford base32 characters after "ORD-".
+ *
+ * Numbers from one node never repeat, and nodes with different ids never collide.
+ * Each instance leases its node id from the database at startup
+ * ({@link OrderNodeLeaseService}) and keeps renewing it, so no two running
+ * instances share one. Should the lease be lost anyway, the generator moves to a
+ * newly leased id. The database refuses a repeated number in any case, through
+ * the order_numbers key table. Numbers sort by creation time both as integers and
+ * as strings, so inserts land at the right edge of the index.
+ *
+ * If the clock steps back, or a millisecond's sequence runs out, the generator
+ * keeps counting from the last timestamp it issued instead of waiting.
+ *
+ * Because the timestamp is recoverable ({@link #createdAtOf}), a lookup by order
+ * number can be narrowed to the monthly partitions around it.
+ */
+@Slf4j
+@Component
+public class OrderNumberGenerator {
+    
+    public static final String PREFIX = "ORD-";
+    
+    static final long EPOCH_MS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+    
+    // Null for a fixed node id
+    private final OrderNodeLeaseService leases;
+    private final LongSupplier clock;
+    private long nodeId;
+    private long lastTimestamp = -1;
+    private long sequence;
+    
+    @Autowired
+    public OrderNumberGenerator(OrderNodeLeaseService leases) {
+        this(leases, leases.acquire(), System::currentTimeMillis);
+    }
+    
+    OrderNumberGenerator(long nodeId, LongSupplier clock) {
+        this(null, nodeId, clock);
+    }
+    
+    OrderNumberGenerator(OrderNodeLeaseService leases, long nodeId, LongSupplier clock) {
+        this.leases = leases;
+        this.clock = clock;
+        this.nodeId = checkNodeId(nodeId);
+    }
+    
+    public String nextOrderNumber() {
+        return PREFIX + encode(nextId());
+    }
+    
+    synchronized long getNodeId() {
+        return nodeId;
+    }
+    
+    @Scheduled(fixedDelayString = "${orders.number.lease-renew-interval-ms:60000}",
+               scheduler = SchedulingConfig.KEEP_ALIVE_SCHEDULER)
+    public void renewLease() {
+        if (leases == null) {
+            return;
+        }
+        long current = getNodeId();
+        try {
+            if (!leases.renew((int) current)) {
+                long replacement = checkNodeId(leases.acquire());
+                log.error("Lease on order node id {} was taken over, switching to {}", current, replacement);
+                synchronized (this) {
+                    nodeId = replacement;
+                }
+            }
+        } catch (RuntimeException e) {
+            // The lease has minutes left; the next renewal tries again
+            log.warn("Renewing the lease on order node id {} failed: {}", current, e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void releaseLease() {
+        if (leases == null) {
+            return;
+        }
+        try {
+            leases.release((int) getNodeId());
+        } catch (RuntimeException e) {
+            log.warn("Releasing order node id {} failed, it frees up when the lease runs out: {}", getNodeId(), e.getMessage());
+        }
+    }
+    
+    public synchronized long nextId() {
+        long timestamp = Math.max(clock.getAsLong() - EPOCH_MS, lastTimestamp);
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // Sequence exhausted for this millisecond: borrow the next one
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+    
+    /**
+     * Approximate creation time of an order number issued by this generator, in the
+     * system zone like {@code Order.createdAt}. Empty for numbers in any other format,
+     * such as the 8-character ones issued before this generator existed.
+     */
+    public static Optional<LocalDateTime> createdAtOf(String orderNumber) {
+        if (orderNumber == null || orderNumber.length() != PREFIX.length() + ENCODED_LENGTH
+                || !orderNumber.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        long id = 0;
+        for (int i = PREFIX.length(); i < orderNumber.length(); i++) {
+            int digit = digitOf(orderNumber.charAt(i));
+            if (digit < 0) {
+                return Optional.empty();
+            }
+            id = (id << 5) | digit;
+        }
+        long epochMs = EPOCH_MS + (id >>> (NODE_BITS + SEQUENCE_BITS));
+        return Optional.of(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault()));
+    }
+    
+    /**
+     * Fixed-width base32, most significant digit first, so string order matches numeric order.
+     */
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+    
+    private static int digitOf(char c) {
+        for (int digit = 0; digit < ALPHABET.length; digit++) {
+            if (ALPHABET[digit] == c) {
+                return digit;
+            }
+        }
+        return -1;
+    }
+    
+    private static long checkNodeId(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        return nodeId;
+    }
+}
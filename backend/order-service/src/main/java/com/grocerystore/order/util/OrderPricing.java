@@ -0,0 +1,38 @@
+package com.grocerystore.order.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Tax and delivery fee rules for order totals, in cents.
+ */
+public final class OrderPricing {
+    
+    // Utah state grocery tax rate: 6.1%
+    public static final BigDecimal TAX_RATE = new BigDecimal("0.061");
+    
+    // Delivery fee for orders below $100
+    public static final long DELIVERY_FEE_CENTS = 1000;
+    public static final long FREE_DELIVERY_THRESHOLD_CENTS = 10000;
+    
+    private static final long TAX_RATE_MILLIONTHS = Money.toRateMillionths(TAX_RATE);
+    
+    private OrderPricing() {
+    }
+    
+    /**
+     * Tax on a subtotal, rounded half up to the cent.
+     */
+    public static long tax(long subtotalCents) {
+        return Money.applyRate(subtotalCents, TAX_RATE_MILLIONTHS);
+    }
+    
+    /**
+     * $10 if the order total (subtotal + tax) is below $100. POS orders have no delivery fee.
+     */
+    public static long deliveryFee(long amountAfterTaxCents, boolean isPosOrder) {
+        if (isPosOrder || amountAfterTaxCents >= FREE_DELIVERY_THRESHOLD_CENTS) {
+            return 0;
+        }
+        return DELIVERY_FEE_CENTS;
+    }
+}
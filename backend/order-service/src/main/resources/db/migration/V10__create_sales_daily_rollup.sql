@@ -0,0 +1,22 @@
+-- Running sales totals per day, channel and payment method, maintained in the
+-- same transaction as the order status change that affects them.
+-- An order counts while its status is CONFIRMED or DELIVERED.
+CREATE TABLE sales_daily_rollup (
+    sales_date DATE NOT NULL,
+    channel VARCHAR(10) NOT NULL,
+    payment_method VARCHAR(50) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_amount DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, channel, payment_method)
+);
+
+-- Backfill from existing orders
+INSERT INTO sales_daily_rollup (sales_date, channel, payment_method, order_count, total_amount)
+SELECT CAST(created_at AS DATE),
+       CASE WHEN is_pos_order THEN 'POS' ELSE 'ONLINE' END,
+       COALESCE(payment_method, 'UNKNOWN'),
+       COUNT(*),
+       SUM(total_amount)
+FROM orders
+WHERE status IN ('CONFIRMED', 'DELIVERED')
+GROUP BY 1, 2, 3;
@@ -0,0 +1,4 @@
+-- Status-then-date index for sales and reporting scans ("confirmed orders between X and Y").
+-- It also serves every status-only lookup, so the single-column status index goes.
+CREATE INDEX idx_orders_status_created_at ON orders(status, created_at);
+DROP INDEX IF EXISTS idx_orders_status;
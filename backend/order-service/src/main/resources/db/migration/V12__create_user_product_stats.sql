@@ -0,0 +1,17 @@
+-- Per-user purchase counters behind "Buy Again", updated when an online order is confirmed.
+-- Existing history is loaded by the backfill job (POST /api/orders/admin/buy-again/backfill).
+CREATE TABLE user_product_stats (
+    user_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(255) NOT NULL,
+    times_ordered INTEGER NOT NULL DEFAULT 0,
+    total_quantity BIGINT NOT NULL DEFAULT 0,
+    total_price DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    total_weight DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    weighed_count INTEGER NOT NULL DEFAULT 0,
+    last_ordered_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, product_id)
+);
+
+-- Serves the top-N read without a sort
+CREATE INDEX idx_user_product_stats_top ON user_product_stats(user_id, times_ordered DESC, last_ordered_at DESC);
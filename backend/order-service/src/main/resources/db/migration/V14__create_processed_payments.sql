@@ -0,0 +1,6 @@
+-- Payment events already applied, so redelivered payment.succeeded messages are no-ops
+CREATE TABLE processed_payments (
+    payment_id BIGINT PRIMARY KEY,
+    order_number VARCHAR(50) NOT NULL,
+    processed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
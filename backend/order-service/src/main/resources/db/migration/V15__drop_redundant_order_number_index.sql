@@ -0,0 +1,3 @@
+-- order_number is UNIQUE, so its constraint index already serves lookups;
+-- idx_orders_number only doubled the index work on every insert.
+DROP INDEX IF EXISTS idx_orders_number;
@@ -0,0 +1,163 @@
+-- Monthly range partitions for orders and order_items.
+--
+-- orders is partitioned on created_at. order_items carries a copy of its order's
+-- created_at (order_created_at) so it can be partitioned on the same months and an
+-- order and its items always live in partitions with the same suffix (orders_2025_03,
+-- order_items_2025_03). Queries that bound created_at only touch the months they need,
+-- and each month's indexes and vacuum work stay small no matter how much history builds up.
+--
+-- Partitions are named <table>_YYYY_MM. create_order_partitions() adds future months
+-- and archive_order_partitions() moves old ones to orders_archive / order_items_archive;
+-- OrderPartitionMaintenance calls both on a schedule.
+
+-- Partitioned tables can only be referenced through their full primary key (id, created_at).
+-- carbon_footprint_history and order_execution_history only hold an order id, so their
+-- links to orders go; both are append-only logs and orders are archived, never deleted.
+-- Dropped before the rename, or the constraints would follow orders to orders_unpartitioned
+-- and block dropping it. order_items gets its key back below, on (order_id, order_created_at).
+ALTER TABLE carbon_footprint_history DROP CONSTRAINT IF EXISTS carbon_footprint_history_order_id_fkey;
+ALTER TABLE order_execution_history DROP CONSTRAINT IF EXISTS order_execution_history_executed_order_id_fkey;
+
+ALTER TABLE order_items RENAME TO order_items_unpartitioned;
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+
+-- Same columns, order and defaults (including nextval on the existing id sequences)
+CREATE TABLE orders (LIKE orders_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+
+CREATE TABLE order_items (LIKE order_items_unpartitioned INCLUDING DEFAULTS,
+    order_created_at TIMESTAMP NOT NULL)
+    PARTITION BY RANGE (order_created_at);
+
+-- Detached partitions end up here. Not part of any query path; read them directly for audits.
+CREATE TABLE orders_archive (LIKE orders) PARTITION BY RANGE (created_at);
+CREATE TABLE order_items_archive (LIKE order_items) PARTITION BY RANGE (order_created_at);
+
+-- Create the monthly partitions of orders and order_items covering [from_month, to_month].
+-- Months that already exist (attached or archived) are skipped. Returns the number of months created.
+CREATE OR REPLACE FUNCTION create_order_partitions(from_month DATE, to_month DATE) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::date;
+    month_end DATE;
+    suffix TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= to_month LOOP
+        month_end := (month_start + INTERVAL '1 month')::date;
+        suffix := to_char(month_start, 'YYYY_MM');
+        IF to_regclass('orders_' || suffix) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                           'orders_' || suffix, month_start, month_end);
+            created := created + 1;
+        END IF;
+        IF to_regclass('order_items_' || suffix) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                           'order_items_' || suffix, month_start, month_end);
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Move every month that ends on or before cutoff out of orders/order_items and into the
+-- archive tables. Detach and attach are catalog-only; no rows are copied.
+-- Returns the names of the moved partitions so the caller can freeze them.
+CREATE OR REPLACE FUNCTION archive_order_partitions(cutoff DATE) RETURNS SETOF TEXT AS $$
+DECLARE
+    part RECORD;
+    fk RECORD;
+    suffix TEXT;
+    month_start DATE;
+    month_end DATE;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'orders'::regclass AND c.relname ~ '^orders_[0-9]{4}_[0-9]{2}$'
+        ORDER BY c.relname
+    LOOP
+        suffix := substr(part.relname, length('orders_') + 1);
+        month_start := to_date(suffix, 'YYYY_MM');
+        month_end := (month_start + INTERVAL '1 month')::date;
+        CONTINUE WHEN month_end > cutoff;
+
+        IF to_regclass('order_items_' || suffix) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE order_items DETACH PARTITION %I', 'order_items_' || suffix);
+            -- The detached items keep their key to orders, which would block detaching the month's orders
+            FOR fk IN
+                SELECT conname FROM pg_constraint
+                WHERE conrelid = ('order_items_' || suffix)::regclass AND contype = 'f'
+                  AND confrelid = 'orders'::regclass
+            LOOP
+                EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', 'order_items_' || suffix, fk.conname);
+            END LOOP;
+            EXECUTE format('ALTER TABLE order_items_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           'order_items_' || suffix, month_start, month_end);
+            RETURN NEXT 'order_items_' || suffix;
+        END IF;
+        EXECUTE format('ALTER TABLE orders DETACH PARTITION %I', part.relname);
+        EXECUTE format('ALTER TABLE orders_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       part.relname, month_start, month_end);
+        RETURN NEXT part.relname;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Every month with data, plus three months ahead; the maintenance job keeps the horizon moving
+SELECT create_order_partitions(
+    LEAST(COALESCE((SELECT MIN(created_at) FROM orders_unpartitioned)::date, CURRENT_DATE), CURRENT_DATE),
+    GREATEST(COALESCE((SELECT MAX(created_at) FROM orders_unpartitioned)::date, CURRENT_DATE),
+             (CURRENT_DATE + INTERVAL '3 months')::date));
+
+INSERT INTO orders SELECT * FROM orders_unpartitioned;
+
+INSERT INTO order_items
+SELECT oi.*, o.created_at
+FROM order_items_unpartitioned oi JOIN orders_unpartitioned o ON o.id = oi.order_id;
+
+-- Keep the id sequences when the old tables go
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+ALTER SEQUENCE order_items_id_seq OWNED BY order_items.id;
+
+DROP TABLE order_items_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+-- Keys and indexes are built once after the copy. Unique constraints on a partitioned
+-- table must include the partition key, so (order_number, created_at) only serves
+-- lookups; order_numbers below keeps order numbers unique across all months.
+ALTER TABLE orders ADD PRIMARY KEY (id, created_at);
+ALTER TABLE orders ADD CONSTRAINT orders_order_number_key UNIQUE (order_number, created_at);
+ALTER TABLE order_items ADD PRIMARY KEY (id, order_created_at);
+ALTER TABLE order_items ADD CONSTRAINT order_items_order_fkey
+    FOREIGN KEY (order_id, order_created_at) REFERENCES orders(id, created_at) ON DELETE CASCADE;
+
+-- Every order number ever issued, unpartitioned so its primary key is global. Filled by a
+-- trigger on orders, so every insert path is covered; a duplicate number fails the insert.
+-- Numbers stay reserved when their orders are archived or deleted.
+CREATE TABLE order_numbers (
+    order_number VARCHAR(50) PRIMARY KEY,
+    order_created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO order_numbers (order_number, order_created_at)
+SELECT order_number, created_at FROM orders;
+
+CREATE OR REPLACE FUNCTION reserve_order_number() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO order_numbers (order_number, order_created_at) VALUES (NEW.order_number, NEW.created_at);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_reserve_order_number
+    AFTER INSERT ON orders
+    FOR EACH ROW EXECUTE FUNCTION reserve_order_number();
+
+CREATE INDEX idx_orders_user ON orders(user_id, created_at);
+CREATE INDEX idx_orders_created_at ON orders(created_at);
+CREATE INDEX idx_orders_status_created_at ON orders(status, created_at);
+CREATE INDEX idx_orders_pos_created_at ON orders(is_pos_order, created_at);
+CREATE INDEX idx_order_items_order ON order_items(order_id);
+
+-- idx_orders_payment_method and idx_orders_carbon served no query and are not recreated
@@ -0,0 +1,12 @@
+-- Idempotency keys of POS sales ingested in batches (POST /api/orders/pos/batch).
+-- A lane resending a sale finds its key here and gets the original order back
+-- instead of a second order. Kept in its own table because orders is partitioned
+-- and can't enforce uniqueness of a column outside its partition key.
+CREATE TABLE pos_order_keys (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    order_number VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_pos_order_keys_created_at ON pos_order_keys(created_at);
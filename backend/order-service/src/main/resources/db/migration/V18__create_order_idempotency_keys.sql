@@ -0,0 +1,13 @@
+-- Idempotency-Key header of POST /api/orders. One row per (user, key), the user being
+-- the caller from the token: a hash of the request it was first used with and the order
+-- it produced. A retry with the same key gets that order back instead of creating another one.
+CREATE TABLE order_idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash BYTEA NOT NULL,
+    order_number VARCHAR(50),
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX idx_order_idempotency_keys_expires_at ON order_idempotency_keys(expires_at);
@@ -0,0 +1,28 @@
+-- Emission factors for carbon footprints, per catalog category and optionally per product.
+-- A product row overrides its category's row. unit_weight_kg is the weight of one unit,
+-- used for items sold by quantity; NULL falls back to the category's value, then 0.5 kg.
+-- Changes are picked up by EmissionFactorCache on its next refresh or on
+-- POST /api/orders/admin/emission-factors/reload.
+CREATE TABLE emission_factors (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT UNIQUE,
+    category_name VARCHAR(255) UNIQUE,
+    kg_co2e_per_kg DECIMAL(10,4) NOT NULL,
+    unit_weight_kg DECIMAL(10,4),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT emission_factors_one_key CHECK ((product_id IS NULL) <> (category_name IS NULL))
+);
+
+-- Catalog categories, with the averages previously hard-coded in CarbonFootprintService
+-- and a typical pack or piece weight for each (a 1 l bottle, a loaf, a single fruit).
+-- Products that differ a lot from their category's unit get a product row.
+INSERT INTO emission_factors (category_name, kg_co2e_per_kg, unit_weight_kg) VALUES
+    ('Meat', 27.0, 0.45),
+    ('Meat & Seafood', 27.0, 0.45),
+    ('Dairy & Eggs', 3.2, 0.8),
+    ('Fruits & Vegetables', 0.4, 0.2),
+    ('Bakery', 0.5, 0.5),
+    ('Pantry Staples', 0.5, 0.5),
+    ('Beverages', 0.3, 1.0),
+    ('Snacks', 2.0, 0.2),
+    ('Frozen Foods', 1.5, 0.6);
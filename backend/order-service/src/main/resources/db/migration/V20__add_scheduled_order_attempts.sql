@@ -0,0 +1,5 @@
+-- Consecutive failed executions of a scheduled order's current occurrence.
+-- Failed attempts back off through claimed_until; after orders.scheduled.retry.max-attempts
+-- the schedule moves to FAILED and stays there until the customer resumes it.
+ALTER TABLE scheduled_orders
+ADD COLUMN failed_attempts INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+-- Order number node ids (0-1023) leased by running instances, so no two instances
+-- generate numbers with the same node id. A lease is renewed while its instance runs;
+-- one that has run out may be taken over by another instance.
+CREATE TABLE order_node_leases (
+    node_id INTEGER PRIMARY KEY,
+    owner VARCHAR(64),
+    leased_until TIMESTAMP NOT NULL
+);
+
+INSERT INTO order_node_leases (node_id, owner, leased_until)
+SELECT id, NULL, TIMESTAMP '1970-01-01 00:00:00'
+FROM generate_series(0, 1023) AS id;
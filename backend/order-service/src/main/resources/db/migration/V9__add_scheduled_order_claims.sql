@@ -0,0 +1,10 @@
+-- Claim columns so several order-service instances can execute scheduled orders
+-- without running the same one twice. A worker claims due rows with
+-- FOR NO KEY UPDATE SKIP LOCKED and holds a lease until claimed_until.
+ALTER TABLE scheduled_orders
+ADD COLUMN claimed_by VARCHAR(64),
+ADD COLUMN claimed_until TIMESTAMP;
+
+-- Due-order scan only ever looks at live schedules
+CREATE INDEX idx_scheduled_orders_due ON scheduled_orders(next_execution_date, id)
+WHERE status IN ('PENDING', 'ACTIVE');
@@ -0,0 +1,151 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.CreateOrderRequest;
+import com.grocerystore.order.dto.OrderDto;
+import com.grocerystore.order.dto.OrderItemDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * A key must give its caller back the order it first created, and only that caller.
+ */
+class OrderIdempotencyServiceTest {
+    
+    private final OrderService orderService = mock(OrderService.class);
+    private final KeyTable keyTable = new KeyTable();
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final AtomicInteger orderNumbers = new AtomicInteger();
+    
+    private OrderIdempotencyService service;
+    
+    @BeforeEach
+    void setUp() {
+        service = new OrderIdempotencyService(orderService, keyTable, transactionTemplate, 24, 5_000);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(orderService.createOrder(any())).thenAnswer(invocation -> order("ORD-" + orderNumbers.incrementAndGet()));
+        when(orderService.getOrderByOrderNumber(any())).thenAnswer(invocation -> order(invocation.getArgument(0)));
+    }
+    
+    @Test
+    void retryReplaysTheOriginalOrder() {
+        OrderIdempotencyService.Result first = service.createOrder(1L, "key", request(1L, "2.50"));
+        OrderIdempotencyService.Result retry = service.createOrder(1L, "key", request(1L, "2.50"));
+        
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.order().getOrderNumber()).isEqualTo(first.order().getOrderNumber());
+        verify(orderService, times(1)).createOrder(any());
+    }
+    
+    @Test
+    void keyReusedWithADifferentRequestIsRefused() {
+        service.createOrder(1L, "key", request(1L, "2.50"));
+        
+        assertThatThrownBy(() -> service.createOrder(1L, "key", request(1L, "3.00")))
+                .isInstanceOfSatisfying(OrderIdempotencyService.IdempotencyConflictException.class, e ->
+                        assertThat(e.getReason()).isEqualTo(OrderIdempotencyService.IdempotencyConflictException.Reason.KEY_REUSED));
+    }
+    
+    @Test
+    void keysBelongToTheCallerNotTheRequestBody() {
+        OrderIdempotencyService.Result mine = service.createOrder(1L, "key", request(1L, "2.50"));
+        // Same key and body, claiming to be user 1, from another caller
+        OrderIdempotencyService.Result theirs = service.createOrder(2L, "key", request(1L, "2.50"));
+        
+        assertThat(theirs.replayed()).isFalse();
+        assertThat(theirs.order().getOrderNumber()).isNotEqualTo(mine.order().getOrderNumber());
+        verify(orderService, times(2)).createOrder(any());
+    }
+    
+    @Test
+    void concurrentDuplicateWaitsForTheFirstAttempt() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(any())).thenAnswer(invocation -> {
+            creating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return order("ORD-FIRST");
+        });
+        
+        CompletableFuture<OrderIdempotencyService.Result> first =
+                CompletableFuture.supplyAsync(() -> service.createOrder(1L, "key", request(1L, "2.50")));
+        assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<OrderIdempotencyService.Result> duplicate =
+                CompletableFuture.supplyAsync(() -> service.createOrder(1L, "key", request(1L, "2.50")));
+        release.countDown();
+        
+        assertThat(first.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).replayed()).isTrue();
+        assertThat(duplicate.get().order().getOrderNumber()).isEqualTo("ORD-FIRST");
+        verify(orderService, times(1)).createOrder(any());
+    }
+    
+    private static CreateOrderRequest request(Long userId, String price) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setUserId(userId);
+        request.setItems(List.of(OrderItemDto.builder()
+                .productId(1L)
+                .productName("Milk")
+                .price(new BigDecimal(price))
+                .quantity(1)
+                .build()));
+        return request;
+    }
+    
+    private static OrderDto order(String orderNumber) {
+        OrderDto order = new OrderDto();
+        order.setOrderNumber(orderNumber);
+        return order;
+    }
+    
+    /**
+     * order_idempotency_keys in memory, for the statements the service runs. Keys don't expire.
+     */
+    private static class KeyTable extends JdbcTemplate {
+        
+        private final Map<String, Object[]> rows = new ConcurrentHashMap<>();
+        
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT INTO order_idempotency_keys")) {
+                return rows.putIfAbsent(args[0] + ":" + args[1], new Object[]{args[2], null}) == null ? 1 : 0;
+            }
+            if (sql.startsWith("UPDATE order_idempotency_keys SET order_number")) {
+                rows.get(args[1] + ":" + args[2])[1] = args[0];
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+        
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            Object[] row = rows.get(args[0] + ":" + args[1]);
+            if (row == null) {
+                return List.of();
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("request_hash", row[0]);
+            result.put("order_number", row[1]);
+            return List.of(result);
+        }
+    }
+}
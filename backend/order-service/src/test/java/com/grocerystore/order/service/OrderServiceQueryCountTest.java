@@ -0,0 +1,125 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.OrderDto;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.model.OrderItem;
+import com.grocerystore.order.util.OrderNumberGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the number of SQL statements per order listing, so per-order
+ * lazy item loads don't creep back in.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderService.class, SalesRollupService.class, UserProductStatsService.class, OrderNumberGenerator.class})
+class OrderServiceQueryCountTest {
+    
+    private static final long USER_ID = 7L;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @MockBean
+    private OutboxService outboxService;
+    
+    @MockBean
+    private CarbonFootprintService carbonFootprintService;
+    
+    @MockBean
+    private ProductPriceCache productPriceCache;
+    
+    @MockBean
+    private OrderNodeLeaseService orderNodeLeaseService;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        for (int o = 0; o < 30; o++) {
+            Order order = Order.builder()
+                    .orderNumber("ORD-" + o)
+                    .userId(o % 3 == 0 ? USER_ID : 100L + o)
+                    .subtotal(new BigDecimal("10.00"))
+                    .taxAmount(new BigDecimal("0.61"))
+                    .deliveryFee(BigDecimal.ZERO)
+                    .totalAmount(new BigDecimal("10.61"))
+                    .status(Order.OrderStatus.CONFIRMED)
+                    .isPosOrder(o % 2 == 0)
+                    .build();
+            List<OrderItem> items = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                items.add(OrderItem.builder()
+                        .order(order)
+                        .productId((long) i)
+                        .productName("Product " + i)
+                        .price(new BigDecimal("3.00"))
+                        .quantity(1)
+                        .subtotal(new BigDecimal("3.00"))
+                        .build());
+            }
+            order.setItems(items);
+            entityManager.persist(order);
+        }
+        
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    @Test
+    void testGetAllOrders_ItemsFetchedInOneStatement() {
+        List<OrderDto> orders = orderService.getAllOrders(null);
+        
+        assertEquals(30, orders.size());
+        assertTrue(orders.stream().allMatch(o -> o.getItems().size() == 3));
+        // orders, then items for all of them
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+    
+    @Test
+    void testGetOrdersByUserId_ItemsFetchedInOneStatement() {
+        List<OrderDto> orders = orderService.getOrdersByUserId(USER_ID);
+        
+        assertEquals(10, orders.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+    
+    @Test
+    void testGetAllOrdersPage_FixedStatementCount() {
+        Page<OrderDto> page = orderService.getAllOrders(true, 0, 5);
+        
+        assertEquals(5, page.getContent().size());
+        assertEquals(15, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(o -> o.getItems().size() == 3));
+        // page, count, then items for the page
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,155 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.OrderStatusChangedEvent;
+import com.grocerystore.order.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A client that stops reading must never hold up delivery to the others,
+ * even with a single sender thread.
+ */
+class OrderStatusStreamServiceTest {
+    
+    private static final long SEND_TIMEOUT_MS = 100;
+    
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+    private final OrderStatusStreamService service =
+            new OrderStatusStreamService(timeout -> emitters.removeFirst(), 60_000, SEND_TIMEOUT_MS, 8, 1);
+    
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+    
+    @Test
+    void stalledClientIsEvictedAndOthersKeepReceiving() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter store = new RecordingEmitter();
+        emitters.add(stalled);
+        emitters.add(store);
+        service.subscribeUser(1L);
+        service.subscribeStore();
+        
+        service.onStatusChanged(event(1L, 10L));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // The only sender thread is now stuck on the stalled client
+        assertThat(store.sent.poll(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isNull();
+        
+        Thread.sleep(SEND_TIMEOUT_MS + 50);
+        service.evictStalledClients();
+        
+        assertThat(store.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+        service.onStatusChanged(event(1L, 11L));
+        assertThat(store.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(stalled.attempts).hasValue(1);
+        
+        // Once the stuck send returns, the evicted emitter is completed
+        stalled.release.countDown();
+        assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+    
+    @Test
+    void fullBufferDisconnectsWithoutWaitingForTheStuckSend() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter store = new RecordingEmitter();
+        emitters.add(stalled);
+        emitters.add(store);
+        service.subscribeUser(1L);
+        service.subscribeStore();
+        
+        service.onStatusChanged(event(1L, 10L));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // One event in flight, eight buffered, the next one overflows
+        for (long orderId = 11; orderId <= 19; orderId++) {
+            service.onStatusChanged(event(1L, orderId));
+        }
+        
+        // The listener returned without completing the emitter, which would block on the send
+        assertThat(stalled.completed.getCount()).isEqualTo(1);
+        service.onStatusChanged(event(1L, 20L));
+        
+        stalled.release.countDown();
+        assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stalled.attempts).hasValue(1);
+        assertThat(stalled.completedBy.get()).isNotEqualTo(Thread.currentThread().getName());
+    }
+    
+    @Test
+    void customersOnlyReceiveTheirOwnOrders() throws Exception {
+        RecordingEmitter mine = new RecordingEmitter();
+        RecordingEmitter theirs = new RecordingEmitter();
+        emitters.add(mine);
+        emitters.add(theirs);
+        service.subscribeUser(1L);
+        service.subscribeUser(2L);
+        
+        service.onStatusChanged(event(1L, 10L));
+        service.onStatusChanged(event(1L, 11L));
+        
+        assertThat(List.of(mine.sent.poll(5, TimeUnit.SECONDS), mine.sent.poll(5, TimeUnit.SECONDS)))
+                .doesNotContainNull();
+        assertThat(theirs.sent.poll(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isNull();
+    }
+    
+    private static OrderStatusChangedEvent event(Long userId, Long orderId) {
+        return OrderStatusChangedEvent.builder()
+                .orderId(orderId)
+                .orderNumber("ORD-" + orderId)
+                .userId(userId)
+                .status(Order.OrderStatus.CONFIRMED)
+                .changedAt(System.currentTimeMillis())
+                .build();
+    }
+    
+    private static class RecordingEmitter extends SseEmitter {
+        
+        final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> sent = new LinkedBlockingQueue<>();
+        
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            sent.add(items);
+        }
+    }
+    
+    private static class StalledEmitter extends SseEmitter {
+        
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicReference<String> completedBy = new AtomicReference<>();
+        
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            attempts.incrementAndGet();
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        @Override
+        public void complete() {
+            completedBy.set(Thread.currentThread().getName());
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.grocerystore.order.service;
+
+import com.grocerystore.order.dto.OrderConfirmedEvent;
+import com.grocerystore.order.dto.OrderItemDto;
+import com.grocerystore.order.dto.OrderStatusChangedEvent;
+import com.grocerystore.order.dto.PosOrderBatchRequest;
+import com.grocerystore.order.dto.PosOrderBatchResponse;
+import com.grocerystore.order.model.Order;
+import com.grocerystore.order.util.Money;
+import com.grocerystore.order.util.OrderNumberGenerator;
+import com.grocerystore.order.util.OrderPricing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Resent sales must resolve to their first order, sales that can't be booked as
+ * rung up must come back REJECTED, and stock and status must go out once per order.
+ */
+class PosOrderBatchServiceTest {
+    
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final ProductPriceCache productPriceCache = mock(ProductPriceCache.class);
+    private final OrderNumberGenerator orderNumberGenerator = mock(OrderNumberGenerator.class);
+    private final OutboxService outboxService = mock(OutboxService.class);
+    
+    // Keys already in pos_order_keys, as key -> (order id, order number)
+    private final Map<String, Object[]> storedKeys = new HashMap<>();
+    private final List<String> claimedKeys = new ArrayList<>();
+    
+    private PosOrderBatchService service;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new PosOrderBatchService(jdbcTemplate, namedJdbcTemplate, productPriceCache, orderNumberGenerator,
+                mock(SalesRollupService.class), outboxService, mock(OrderPostCommitProcessor.class), 500, 7, 300, 30);
+        
+        AtomicInteger numbers = new AtomicInteger();
+        when(orderNumberGenerator.nextOrderNumber()).thenAnswer(invocation -> "ORD-" + numbers.incrementAndGet());
+        when(productPriceCache.getPrices(any())).thenReturn(Map.of(
+                1L, new ProductPriceCache.ProductPrice(250, true, 0, 1),
+                2L, new ProductPriceCache.ProductPrice(100, true, 5, 1)));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt())).thenAnswer(invocation ->
+                LongStream.rangeClosed(101, 100 + (int) invocation.getArgument(2)).boxed().toList());
+        
+        doAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object key : (Collection<?>) params.get("keys")) {
+                Object[] order = storedKeys.get(key);
+                if (order != null) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn((String) key);
+                    when(rs.getLong(2)).thenReturn((Long) order[0]);
+                    when(rs.getString(3)).thenReturn((String) order[1]);
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+        
+        // Claims fail for keys that are already stored, as with a concurrent sync that committed first
+        when(jdbcTemplate.<Object>batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenAnswer(invocation -> {
+                    Collection<?> rows = invocation.getArgument(1);
+                    int[] counts = new int[rows.size()];
+                    Arrays.fill(counts, 1);
+                    String sql = invocation.getArgument(0);
+                    if (sql.startsWith("INSERT INTO pos_order_keys")) {
+                        ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+                        int i = 0;
+                        for (Object row : rows) {
+                            String key = keyOf(setter, row);
+                            counts[i++] = storedKeys.containsKey(key) ? 0 : 1;
+                            claimedKeys.add(key);
+                        }
+                    }
+                    return new int[][]{counts};
+                });
+    }
+    
+    @Test
+    void resentSalesResolveToTheirFirstOrder() {
+        storedKeys.put("synced-before", new Object[]{7L, "ORD-OLD"});
+        
+        PosOrderBatchResponse response = service.ingest(batch(
+                sale("synced-before", null, item(1L, "2.50", 1)),
+                sale("new", null, item(1L, "2.50", 1)),
+                sale("new", null, item(1L, "2.50", 1))));
+        
+        assertThat(response.getResults()).extracting(PosOrderBatchResponse.Result::getStatus).containsExactly(
+                PosOrderBatchResponse.Status.DUPLICATE,
+                PosOrderBatchResponse.Status.CREATED,
+                PosOrderBatchResponse.Status.DUPLICATE);
+        assertThat(response.getResults().get(0).getOrderNumber()).isEqualTo("ORD-OLD");
+        assertThat(response.getResults().get(2).getOrderId()).isEqualTo(response.getResults().get(1).getOrderId());
+        assertThat(claimedKeys).containsExactly("new");
+    }
+    
+    @Test
+    void saleClaimedByAConcurrentSyncReturnsThatOrder() {
+        // Not stored when the batch looks its keys up, but committed by the time it claims them
+        when(productPriceCache.getPrices(any())).thenAnswer(invocation -> {
+            storedKeys.put("racing", new Object[]{9L, "ORD-WINNER"});
+            return Map.of();
+        });
+        
+        PosOrderBatchResponse response = service.ingest(batch(sale("racing", null, item(1L, "2.50", 1))));
+        
+        assertThat(response.getDuplicates()).isEqualTo(1);
+        assertThat(response.getResults().get(0).getOrderNumber()).isEqualTo("ORD-WINNER");
+        verifyNoInteractions(outboxService);
+    }
+    
+    @Test
+    void salesThatCantBeBookedAsRungUpAreRejected() {
+        LocalDateTime now = LocalDateTime.now();
+        
+        PosOrderBatchResponse response = service.ingest(batch(
+                sale("too-old", now.minusDays(8), item(1L, "2.50", 1)),
+                sale("future", now.plusHours(1), item(1L, "2.50", 1)),
+                sale("unpriced", null, item(3L, null, 1)),
+                sale("no-product", null, item(1L, "2.50", 1), item(null, "2.50", 1)),
+                sale("null-line", null, item(1L, "2.50", 1), null),
+                sale("yesterday", now.minusDays(1), item(1L, "2.50", 1))));
+        
+        assertThat(response.getResults()).extracting(PosOrderBatchResponse.Result::getStatus).containsExactly(
+                PosOrderBatchResponse.Status.REJECTED,
+                PosOrderBatchResponse.Status.REJECTED,
+                PosOrderBatchResponse.Status.REJECTED,
+                PosOrderBatchResponse.Status.REJECTED,
+                PosOrderBatchResponse.Status.REJECTED,
+                PosOrderBatchResponse.Status.CREATED);
+        assertThat(response.getResults().get(0).getMessage()).contains("7 days");
+        assertThat(claimedKeys).containsExactly("yesterday");
+    }
+    
+    @Test
+    void salesAreBookedAtTheChargedPriceWithEventsPerOrder() {
+        PosOrderBatchResponse response = service.ingest(batch(
+                // Out of stock and repriced since the sale; still booked at what was charged
+                sale("a", null, item(1L, "1.99", 2), item(2L, null, 1)),
+                sale("b", null, item(1L, "1.99", 1))));
+        
+        assertThat(response.getCreated()).isEqualTo(2);
+        // 2 x 1.99 + 1.00 from the catalog, plus tax
+        assertThat(response.getResults().get(0).getTotalAmount())
+                .isEqualByComparingTo(Money.fromCents(498 + OrderPricing.tax(498)));
+        
+        ArgumentCaptor<OrderConfirmedEvent> events = ArgumentCaptor.forClass(OrderConfirmedEvent.class);
+        verify(outboxService, times(2)).append(eq("ORDER"), anyLong(), eq("order-exchange"), eq("order.confirmed"),
+                events.capture());
+        assertThat(events.getAllValues()).extracting(OrderConfirmedEvent::getOrderId).containsExactly(101L, 102L);
+        assertThat(events.getAllValues().get(0).getItems()).containsExactly(
+                new OrderConfirmedEvent.Line(1L, 2), new OrderConfirmedEvent.Line(2L, 1));
+        assertThat(events.getAllValues().get(1).getItems()).containsExactly(new OrderConfirmedEvent.Line(1L, 1));
+        
+        // Store staff see the synced sales on the status stream
+        ArgumentCaptor<OrderStatusChangedEvent> statuses = ArgumentCaptor.forClass(OrderStatusChangedEvent.class);
+        verify(outboxService, times(2)).append(eq("ORDER"), anyLong(), eq("order-exchange"), eq("order.status.changed"),
+                statuses.capture());
+        assertThat(statuses.getAllValues()).extracting(OrderStatusChangedEvent::getOrderId).containsExactly(101L, 102L);
+        assertThat(statuses.getAllValues()).allSatisfy(status -> {
+            assertThat(status.getStatus()).isEqualTo(Order.OrderStatus.CONFIRMED);
+            assertThat(status.getIsPosOrder()).isTrue();
+        });
+    }
+    
+    // The key is the first parameter of the claim insert
+    private static String keyOf(ParameterizedPreparedStatementSetter<Object> setter, Object row) throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.setValues(ps, row);
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(ps).setString(eq(1), key.capture());
+        return key.getValue();
+    }
+    
+    private static PosOrderBatchRequest batch(PosOrderBatchRequest.Sale... sales) {
+        PosOrderBatchRequest request = new PosOrderBatchRequest();
+        request.setSales(List.of(sales));
+        return request;
+    }
+    
+    private static PosOrderBatchRequest.Sale sale(String key, LocalDateTime soldAt, OrderItemDto... items) {
+        PosOrderBatchRequest.Sale sale = new PosOrderBatchRequest.Sale();
+        sale.setIdempotencyKey(key);
+        sale.setUserId(1L);
+        sale.setSoldAt(soldAt);
+        sale.setItems(Arrays.asList(items));
+        return sale;
+    }
+    
+    private static OrderItemDto item(Long productId, String price, int quantity) {
+        return OrderItemDto.builder()
+                .productId(productId)
+                .productName("Product " + productId)
+                .price(price != null ? new BigDecimal(price) : null)
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.grocerystore.order.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Entries must fire on the first tick at or after their deadline, however many
+ * levels they are cascaded through on the way down.
+ */
+class HierarchicalTimingWheelTest {
+    
+    // Levels span 40ms, 160ms, 640ms, ...
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 4;
+    
+    @Test
+    void firesOnFirstTickAtOrAfterDeadlineAcrossLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 1_000);
+        Map<Long, Long> deadlines = new HashMap<>();
+        Random random = new Random(7);
+        for (long key = 0; key < 500; key++) {
+            // From the current bucket up to several overflow levels out
+            long deadline = 1_000 + random.nextInt(20_000);
+            wheel.schedule(key, deadline);
+            deadlines.put(key, deadline);
+        }
+        
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 1_000; now <= 22_000; now += TICK_MS) {
+            for (Long key : wheel.advance(now)) {
+                firedAt.put(key, now);
+            }
+        }
+        
+        assertThat(firedAt).hasSameSizeAs(deadlines);
+        deadlines.forEach((key, deadline) -> assertThat(firedAt.get(key))
+                .isGreaterThanOrEqualTo(deadline)
+                .isLessThan(deadline + TICK_MS));
+        assertThat(wheel.size()).isZero();
+    }
+    
+    @Test
+    void cancelledAndRescheduledEntriesDoNotFireAtTheOldDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        wheel.schedule("cancelled", 500);
+        wheel.schedule("moved", 500);
+        wheel.schedule("kept", 500);
+        
+        assertThat(wheel.cancel("cancelled")).isTrue();
+        assertThat(wheel.cancel("cancelled")).isFalse();
+        wheel.schedule("moved", 2_000);
+        
+        assertThat(advanceTo(wheel, 0, 1_990)).containsExactly("kept");
+        assertThat(wheel.contains("moved")).isTrue();
+        assertThat(advanceTo(wheel, 2_000, 3_000)).containsExactly("moved");
+        assertThat(wheel.size()).isZero();
+    }
+    
+    @Test
+    void overdueEntriesFireOnNextAdvanceAndSkippedTicksAreCaughtUp() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 1_000);
+        wheel.schedule("overdue", 200);
+        wheel.schedule("far", 100_000);
+        
+        assertThat(wheel.advance(1_000)).containsExactly("overdue");
+        
+        // One big jump, as after a stalled ticker, still cascades "far" down in time
+        assertThat(wheel.advance(99_990)).isEmpty();
+        assertThat(wheel.advance(100_000)).containsExactly("far");
+    }
+    
+    private static <K> List<K> advanceTo(HierarchicalTimingWheel<K> wheel, long from, long to) {
+        List<K> fired = new ArrayList<>();
+        for (long now = from; now <= to; now += TICK_MS) {
+            fired.addAll(wheel.advance(now));
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,76 @@
+package com.grocerystore.order.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stream tokens open the status streams from the query string and nothing else;
+ * login tokens are only ever taken from the Authorization header.
+ */
+class JwtUtilTest {
+    
+    private static final String SECRET = "test-secret-key-that-is-at-least-32-characters-long";
+    
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private String loginToken;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "streamTokenExpiration", 60_000L);
+        loginToken = Jwts.builder()
+                .subject("alice")
+                .claim("userId", 42)
+                .claim("role", "CUSTOMER")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+    
+    @Test
+    void streamTokenOpensStreamsFromTheQueryString() {
+        String streamToken = jwtUtil.generateStreamToken(loginToken);
+        
+        assertThat(jwtUtil.resolveToken(request("/api/orders/stream", null, streamToken))).isEqualTo(streamToken);
+        assertThat(jwtUtil.resolveToken(request("/api/orders/admin/stream", null, streamToken))).isEqualTo(streamToken);
+        assertThat(jwtUtil.extractUserId(streamToken)).isEqualTo(42L);
+        assertThat(jwtUtil.extractRole(streamToken)).isEqualTo("CUSTOMER");
+        assertThat(jwtUtil.validateToken(streamToken)).isTrue();
+    }
+    
+    @Test
+    void streamTokenIsRefusedOutsideTheStreams() {
+        String streamToken = jwtUtil.generateStreamToken(loginToken);
+        
+        assertThat(jwtUtil.resolveToken(request("/api/orders/7", null, streamToken))).isNull();
+        assertThat(jwtUtil.resolveToken(request("/api/orders/stream", streamToken, null))).isNull();
+    }
+    
+    @Test
+    void loginTokenIsOnlyTakenFromTheHeader() {
+        assertThat(jwtUtil.resolveToken(request("/api/orders/7", loginToken, null))).isEqualTo(loginToken);
+        assertThat(jwtUtil.resolveToken(request("/api/orders/stream", loginToken, null))).isEqualTo(loginToken);
+        assertThat(jwtUtil.resolveToken(request("/api/orders/stream", null, loginToken))).isNull();
+    }
+    
+    private static MockHttpServletRequest request(String uri, String bearer, String queryToken) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (bearer != null) {
+            request.addHeader("Authorization", "Bearer " + bearer);
+        }
+        if (queryToken != null) {
+            request.setParameter(JwtUtil.STREAM_TOKEN_PARAM, queryToken);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,36 @@
+package com.grocerystore.order.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Must behave like a HashMap for the keys it is used with, through resizes.
+ */
+class LongObjectMapTest {
+    
+    @Test
+    void matchesHashMapAcrossResizes() {
+        LongObjectMap<String> map = new LongObjectMap<>(0);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            // Mix of sequential ids, negatives and random keys, with overwrites
+            long key = i % 3 == 0 ? i : i % 3 == 1 ? -i : random.nextInt(20_000);
+            map.put(key, "v" + i);
+            expected.put(key, "v" + i);
+        }
+        
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        assertThat(map.get(Long.MAX_VALUE)).isNull();
+        
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertThat(visited).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,101 @@
+package com.grocerystore.order.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order total computation: the previous BigDecimal chain against the cents engine.
+ *
+ * Run after {@code mvn test-compile}, e.g. from the IDE via {@link #main}, or
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main MoneyBenchmark -prof gc}
+ * to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.061");
+    private static final BigDecimal DELIVERY_FEE = new BigDecimal("10.00");
+    private static final BigDecimal FREE_DELIVERY_THRESHOLD = new BigDecimal("100.00");
+    
+    @Param({"5", "50"})
+    private int lines;
+    
+    private BigDecimal[] prices;
+    private BigDecimal[] weights;
+    private int[] quantities;
+    
+    private long[] priceCents;
+    private long[] weightHundredths;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[lines];
+        weights = new BigDecimal[lines];
+        quantities = new int[lines];
+        priceCents = new long[lines];
+        weightHundredths = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            prices[i] = BigDecimal.valueOf(50 + random.nextInt(2000), 2);
+            quantities[i] = 1 + random.nextInt(5);
+            // Every third line is sold by weight
+            weights[i] = i % 3 == 0 ? BigDecimal.valueOf(10 + random.nextInt(300), 2) : null;
+            priceCents[i] = Money.toCents(prices[i]);
+            weightHundredths[i] = weights[i] != null ? Money.toHundredths(weights[i]) : 0;
+        }
+    }
+    
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            BigDecimal line = weights[i] != null
+                    ? prices[i].multiply(weights[i]).setScale(2, RoundingMode.HALF_UP)
+                    : prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            subtotal = subtotal.add(line);
+        }
+        BigDecimal tax = subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal afterTax = subtotal.add(tax);
+        BigDecimal fee = afterTax.compareTo(FREE_DELIVERY_THRESHOLD) < 0 ? DELIVERY_FEE : BigDecimal.ZERO;
+        return afterTax.add(fee);
+    }
+    
+    @Benchmark
+    public long centsTotal() {
+        long subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            subtotal += Money.lineSubtotal(priceCents[i], quantities[i], weightHundredths[i]);
+        }
+        long afterTax = subtotal + OrderPricing.tax(subtotal);
+        return afterTax + OrderPricing.deliveryFee(afterTax, false);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.grocerystore.order.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The cents engine must give the same totals as the BigDecimal code it replaced.
+ */
+class MoneyTest {
+    
+    @Test
+    void taxMatchesBigDecimalRounding() {
+        for (long cents = 0; cents < 200_000; cents++) {
+            BigDecimal expected = BigDecimal.valueOf(cents, 2)
+                    .multiply(OrderPricing.TAX_RATE)
+                    .setScale(2, RoundingMode.HALF_UP);
+            assertThat(Money.fromCents(OrderPricing.tax(cents))).isEqualTo(expected);
+        }
+    }
+    
+    @Test
+    void lineSubtotalsMatchBigDecimal() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(100_000), 2);
+            BigDecimal weight = BigDecimal.valueOf(1 + random.nextInt(5_000), 2);
+            int quantity = 1 + random.nextInt(50);
+            
+            assertThat(Money.fromCents(Money.lineSubtotal(Money.toCents(price), quantity, Money.toHundredths(weight))))
+                    .isEqualTo(price.multiply(weight).setScale(2, RoundingMode.HALF_UP));
+            assertThat(Money.fromCents(Money.lineSubtotal(Money.toCents(price), quantity, 0)))
+                    .isEqualTo(price.multiply(BigDecimal.valueOf(quantity)));
+        }
+    }
+    
+    @Test
+    void deliveryFeeAppliesBelowThresholdForOnlineOrdersOnly() {
+        assertThat(OrderPricing.deliveryFee(9_999, false)).isEqualTo(1_000);
+        assertThat(OrderPricing.deliveryFee(10_000, false)).isZero();
+        assertThat(OrderPricing.deliveryFee(9_999, true)).isZero();
+    }
+    
+    @Test
+    void halfUpRoundsAwayFromZero() {
+        assertThat(Money.divideHalfUp(150, 100)).isEqualTo(2);
+        assertThat(Money.divideHalfUp(149, 100)).isEqualTo(1);
+        assertThat(Money.divideHalfUp(-150, 100)).isEqualTo(-2);
+    }
+}
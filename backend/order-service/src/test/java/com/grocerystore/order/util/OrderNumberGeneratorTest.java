@@ -0,0 +1,97 @@
+package com.grocerystore.order.util;
+
+import com.grocerystore.order.service.OrderNodeLeaseService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class OrderNumberGeneratorTest {
+    
+    private static final long NOW = OrderNumberGenerator.EPOCH_MS + 1_000_000;
+    
+    @Test
+    void numbersAreUniqueAndSortedWithinAMillisecondAndAcrossClockSteps() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, clock::get);
+        
+        List<String> numbers = new ArrayList<>();
+        // More than one millisecond's worth of sequence, then the clock steps back
+        for (int i = 0; i < 10_000; i++) {
+            numbers.add(generator.nextOrderNumber());
+        }
+        clock.set(NOW - 5_000);
+        for (int i = 0; i < 100; i++) {
+            numbers.add(generator.nextOrderNumber());
+        }
+        clock.set(NOW + 60_000);
+        numbers.add(generator.nextOrderNumber());
+        
+        assertThat(new HashSet<>(numbers)).hasSize(numbers.size());
+        assertThat(numbers).isSorted();
+        assertThat(numbers).allMatch(n -> n.matches("ORD-[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+    
+    @Test
+    void nodesNeverCollide() {
+        Set<Long> ids = new HashSet<>();
+        for (long node = 0; node < 4; node++) {
+            OrderNumberGenerator generator = new OrderNumberGenerator(node, () -> NOW);
+            for (int i = 0; i < 5_000; i++) {
+                assertThat(ids.add(generator.nextId())).isTrue();
+            }
+        }
+    }
+    
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID + 1, () -> NOW))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void movesToANewlyLeasedNodeIdOnceItsLeaseIsTakenOver() {
+        OrderNodeLeaseService leases = mock(OrderNodeLeaseService.class);
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(leases, 3, clock::get);
+        
+        when(leases.renew(3)).thenReturn(true);
+        generator.renewLease();
+        assertThat(generator.getNodeId()).isEqualTo(3);
+        
+        long before = generator.nextId();
+        when(leases.renew(3)).thenReturn(false);
+        when(leases.acquire()).thenReturn(9);
+        generator.renewLease();
+        long after = generator.nextId();
+        
+        assertThat(generator.getNodeId()).isEqualTo(9);
+        assertThat((after >>> OrderNumberGenerator.SEQUENCE_BITS) & OrderNumberGenerator.MAX_NODE_ID).isEqualTo(9);
+        assertThat(after).isGreaterThan(before);
+        
+        // A failed renewal keeps the current id until the next one
+        when(leases.renew(9)).thenThrow(new RuntimeException("connection refused"));
+        generator.renewLease();
+        assertThat(generator.getNodeId()).isEqualTo(9);
+    }
+    
+    @Test
+    void creationTimeIsRecoveredFromTheNumber() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(1023, () -> NOW);
+        
+        assertThat(OrderNumberGenerator.createdAtOf(generator.nextOrderNumber()))
+                .contains(LocalDateTime.ofInstant(Instant.ofEpochMilli(NOW), ZoneId.systemDefault()));
+        assertThat(OrderNumberGenerator.createdAtOf("ORD-1A2B3C4D")).isEmpty();
+        assertThat(OrderNumberGenerator.createdAtOf("ORD-0000000000U00")).isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.grocerystore.payment.config;
+
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitMQConfig {
+    
+    @Bean
+    public TopicExchange paymentExchange(@Value("${spring.rabbitmq.template.exchange:payment-exchange}") String exchange) {
+        return new TopicExchange(exchange, true, false);
+    }
+    
+    // Publish events as JSON so non-Java-serialization consumers (order-service) can read them
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+}